@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.benchmark;
+
+import net.ponec.demo.service.CityResourceService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * City lookups by a known and an unknown ID.
+ *
+ * @author Pavel Ponec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CityServiceBenchmark {
+
+    private CityResourceService service;
+    private int[] ids;
+
+    @Setup
+    public void setUp() {
+        service = new CityResourceService();
+        ids = service.getCityMap().keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public void knownCities(Blackhole blackhole) {
+        for (int id : ids) {
+            blackhole.consume(service.getCity(id));
+        }
+    }
+
+    @Benchmark
+    public void unknownCity(Blackhole blackhole) {
+        blackhole.consume(service.getCity(Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.benchmark;
+
+import net.ponec.demo.service.CityResourceService;
+import net.ponec.demo.service.HotelService;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import net.ponec.demo.model.Hotel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of the hotel CSV file and a build of the snapshot.
+ *
+ * @author Pavel Ponec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class CsvLoadBenchmark {
+
+    /** Count of hotels */
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private HotelService service;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new HotelService(new CityResourceService(), HotelDataGenerator.dataFile(rows));
+    }
+
+    @Benchmark
+    public long parseCsv() {
+        try (Stream<Hotel> hotels = service.loadHotelStream()) {
+            return hotels.count();
+        }
+    }
+
+    @Benchmark
+    public Object buildSnapshot() {
+        return service.reload();
+    }
+}
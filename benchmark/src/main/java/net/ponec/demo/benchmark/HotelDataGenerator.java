@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.benchmark;
+
+import net.ponec.demo.service.HotelService;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A generator of synthetic hotel data in the CSV format of the application.
+ * Rows of the original data file are templates, the copies get a numbered name,
+ * a random price and random stars. Cities are kept, so the original city file is valid for all rows.
+ *
+ * @author Pavel Ponec
+ */
+public final class HotelDataGenerator {
+
+    /** Header of the hotel file */
+    static final String HEADER = "NAME;NOTE;CITY;STREET;PHONE;STARS;HOME_PAGE;PRICE;ACTIVE";
+    /** Classpath resource of the original hotels */
+    static final String HOTELS_CSV = "/csv/ResourceHotel.csv";
+    /** Seed of the random values */
+    static final long SEED = 2013_08_11L;
+
+    /** Columns of the original rows */
+    private final List<String[]> templates = new ArrayList<>();
+
+    public HotelDataGenerator() throws IOException {
+        final URL url = HotelService.class.getResource(HOTELS_CSV);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            boolean data = false;
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (data && !line.isEmpty()) {
+                    templates.add(line.split(";", -1));
+                } else if (line.startsWith(HEADER)) {
+                    data = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a data file.
+     * @param file A target file
+     * @param rowCount Count of hotels
+     */
+    public void write(@NotNull Path file, int rowCount) throws IOException {
+        final Random random = new Random(SEED);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (int i = 0; i < rowCount; i++) {
+                final String[] row = templates.get(i % templates.size()).clone();
+                final int copy = i / templates.size();
+                if (copy > 0) {
+                    row[0] = row[0] + " " + copy;
+                    row[5] = String.valueOf(1 + random.nextInt(9) / 2.0f);
+                    row[7] = random.nextBoolean()
+                            ? String.valueOf(10 + random.nextInt(490))
+                            : (10 + random.nextInt(490)) + "." + (10 + random.nextInt(90));
+                }
+                writer.write(String.join(";", row));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns a data file with the row count, the file is generated once to a temporary directory.
+     * @param rowCount Count of hotels
+     */
+    @NotNull
+    public static URL dataFile(int rowCount) throws IOException {
+        final Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "ajax-demo-benchmark");
+        final Path file = dir.resolve("hotels-" + rowCount + ".csv");
+        if (!Files.isRegularFile(file)) {
+            Files.createDirectories(dir);
+            final Path tempFile = Files.createTempFile(dir, "hotels", ".tmp");
+            try {
+                new HotelDataGenerator().write(tempFile, rowCount);
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+        return file.toUri().toURL();
+    }
+}
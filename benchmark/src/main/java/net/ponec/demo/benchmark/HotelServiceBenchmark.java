@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.benchmark;
+
+import net.ponec.demo.model.HotelView;
+import net.ponec.demo.service.CityResourceService;
+import net.ponec.demo.service.HotelColumn;
+import net.ponec.demo.service.HotelService;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ujorm.tools.web.table.Direction;
+import org.ujorm.tools.web.table.GridBuilder;
+
+/**
+ * Hotel selections by filters, sorts and limits.
+ * The query cache is cleared before each selection.
+ *
+ * @author Pavel Ponec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class HotelServiceBenchmark {
+
+    /** Count of hotels */
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private HotelService service;
+    private GridBuilder<HotelView> byName;
+    private GridBuilder<HotelView> byCity;
+    private GridBuilder<HotelView> byPriceDesc;
+    private GridBuilder<HotelView> byStarsDesc;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new HotelService(new CityResourceService(), HotelDataGenerator.dataFile(rows));
+        service.getSnapshot();
+        byName = new SortedGrid(HotelColumn.NAME, Direction.ASC);
+        byCity = new SortedGrid(HotelColumn.CITY, Direction.ASC);
+        byPriceDesc = new SortedGrid(HotelColumn.PRICE, Direction.DESC);
+        byStarsDesc = new SortedGrid(HotelColumn.STARS, Direction.DESC);
+    }
+
+    @Benchmark
+    public void noFilter(Blackhole blackhole) {
+        select(blackhole, byName, 15, "", "");
+    }
+
+    @Benchmark
+    public void nameFilter(Blackhole blackhole) {
+        select(blackhole, byName, 15, "hotel", "");
+    }
+
+    @Benchmark
+    public void shortNameFilter(Blackhole blackhole) {
+        select(blackhole, byCity, 15, "a", "");
+    }
+
+    @Benchmark
+    public void cityFilter(Blackhole blackhole) {
+        select(blackhole, byPriceDesc, 15, "", "pra");
+    }
+
+    @Benchmark
+    public void rareNameAndCityFilter(Blackhole blackhole) {
+        select(blackhole, byStarsDesc, 15, "hilton", "lon");
+    }
+
+    @Benchmark
+    public void largeLimit(Blackhole blackhole) {
+        select(blackhole, byPriceDesc, 1_000, "in", "");
+    }
+
+    private void select(Blackhole blackhole, GridBuilder<HotelView> grid, int limit, String name, String city) {
+        service.getQueryCache().clear();
+        service.selectHotels(grid, limit, name, city).forEach(hotel -> blackhole.consume(hotel.getName()));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.benchmark;
+
+import net.ponec.demo.model.Message;
+import net.ponec.demo.service.RegexpService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Highlighting by simple and pathological regular expressions.
+ *
+ * @author Pavel Ponec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexpServiceBenchmark {
+
+    /** A sample text */
+    private static final String TEXT = "\"Write once, run anywhere.\" -- Sun Microsystems";
+    /** A text for the catastrophic backtracking */
+    private static final String BACKTRACKING_TEXT = "aaaaaaaaaaaaaaaaaaaa!";
+
+    private final RegexpService service = new RegexpService();
+
+    @Benchmark
+    public Message simpleClass() {
+        return service.highlight(TEXT, "[aeiyou]");
+    }
+
+    @Benchmark
+    public Message simpleWord() {
+        return service.highlight(TEXT, "\\w+");
+    }
+
+    @Benchmark
+    public Message nestedQuantifier() {
+        return service.highlight(BACKTRACKING_TEXT, "(a+)+b");
+    }
+
+    @Benchmark
+    public Message invalidPattern() {
+        return service.highlight(TEXT, "(a");
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.benchmark;
+
+import net.ponec.demo.service.CityResourceService;
+import net.ponec.demo.service.HotelFilter;
+import net.ponec.demo.service.HotelService;
+import net.ponec.demo.servlet.HotelServlet;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ujorm.tools.web.request.ManyMap;
+import org.ujorm.tools.web.request.RContext;
+import org.ujorm.tools.web.request.URequestImpl;
+
+/**
+ * Rendering of a full report page and of an AJAX response into a null sink.
+ * The report is printed by the hotel servlet, including its paging, facets and chunk flushing.
+ *
+ * @author Pavel Ponec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ReportBenchmark {
+
+    /** Count of hotels */
+    @Param({"10000"})
+    public int rows;
+
+    /** Row limit of the report */
+    @Param({"15", "1000"})
+    public String limit;
+
+    private HotelService service;
+    private HotelServlet servlet;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new HotelService(new CityResourceService(), HotelDataGenerator.dataFile(rows));
+        service.getSnapshot();
+        servlet = new HotelServlet(service);
+    }
+
+    @Benchmark
+    public void htmlPage() {
+        render(false);
+    }
+
+    @Benchmark
+    public void ajaxResponse() {
+        render(true);
+    }
+
+    private void render(boolean ajax) {
+        final ManyMap parameters = new ManyMap();
+        parameters.put("name", "hotel");
+        parameters.put("city", "");
+        parameters.put("limit", limit);
+        if (ajax) {
+            parameters.put("_ajax", "true");
+        }
+        final RContext context = new RContext(URequestImpl.ofMap(parameters), Writer.nullWriter());
+        service.getQueryCache().clear();
+        servlet.printReport(context, HotelFilter.of("hotel", ""), null);
+    }
+}
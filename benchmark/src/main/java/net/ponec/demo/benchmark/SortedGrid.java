@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.benchmark;
+
+import net.ponec.demo.model.HotelView;
+import net.ponec.demo.service.HotelColumn;
+import org.ujorm.tools.web.table.Direction;
+import org.ujorm.tools.web.table.GridBuilder;
+
+/**
+ * A grid sorted by one hotel column.
+ *
+ * @author Pavel Ponec
+ */
+final class SortedGrid extends GridBuilder<HotelView> {
+
+    SortedGrid(HotelColumn column, Direction direction) {
+        super("Benchmark");
+        add(column).sortable(direction);
+        setSort(getColumn(0));
+    }
+}
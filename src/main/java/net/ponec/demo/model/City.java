@@ -18,6 +18,9 @@ package net.ponec.demo.model;
 /** City with Country */
 public final class City {
 
+    /** A shared read-only city of hotels without a known city, each setter throws an exception */
+    public static final City UNKNOWN = new City(true);
+
     /** The Primary Key */
     private Integer id;
     /** City name */
@@ -30,12 +33,23 @@ public final class City {
     private Float latitude;
     /** A geographic coordinate for east-west position on the Earth */
     private Float longitude;
+    /** Setters are disabled */
+    private final boolean readOnly;
+
+    public City() {
+        this(false);
+    }
+
+    private City(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
 
     public Integer getId() {
         return id;
     }
 
     public void setId(Integer id) {
+        checkWritable();
         this.id = id;
     }
 
@@ -44,6 +58,7 @@ public final class City {
     }
 
     public void setName(String name) {
+        checkWritable();
         this.name = name;
     }
 
@@ -52,6 +67,7 @@ public final class City {
     }
 
     public void setCountry(String country) {
+        checkWritable();
         this.country = country;
     }
 
@@ -60,6 +76,7 @@ public final class City {
     }
 
     public void setCountryName(String countryName) {
+        checkWritable();
         this.countryName = countryName;
     }
 
@@ -68,6 +85,7 @@ public final class City {
     }
 
     public void setLatitude(Float latitude) {
+        checkWritable();
         this.latitude = latitude;
     }
 
@@ -76,8 +94,16 @@ public final class City {
     }
 
     public void setLongitude(Float longitude) {
+        checkWritable();
         this.longitude = longitude;
     }
 
+    /** Check that the city is not the read-only {@link #UNKNOWN} */
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("The unknown city is read-only");
+        }
+    }
+
 
 }
@@ -21,7 +21,7 @@ import java.math.BigDecimal;
  *
  * @author Pavel Ponec
  */
-public class Hotel {
+public class Hotel implements HotelView {
 
     private Long id;
     /** Name of the Hotel */
@@ -45,11 +45,13 @@ public class Hotel {
     /** Is active */
     private Boolean active;
     
+    @Override
     public String getCityName() {
         final City city = getCity();
         return city != null ? city.getName() : null;
     }
 
+    @Override
     public Long getId() {
         return id;
     }
@@ -58,6 +60,7 @@ public class Hotel {
         this.id = id;
     }
 
+    @Override
     public String getName() {
         return name;
     }
@@ -66,6 +69,7 @@ public class Hotel {
         this.name = name;
     }
 
+    @Override
     public String getNote() {
         return note;
     }
@@ -74,6 +78,7 @@ public class Hotel {
         this.note = note;
     }
 
+    @Override
     public City getCity() {
         return city;
     }
@@ -82,6 +87,7 @@ public class Hotel {
         this.city = city;
     }
 
+    @Override
     public String getStreet() {
         return street;
     }
@@ -90,6 +96,7 @@ public class Hotel {
         this.street = street;
     }
 
+    @Override
     public String getPhone() {
         return phone;
     }
@@ -98,6 +105,7 @@ public class Hotel {
         this.phone = phone;
     }
 
+    @Override
     public Float getStars() {
         return stars;
     }
@@ -106,6 +114,7 @@ public class Hotel {
         this.stars = stars;
     }
 
+    @Override
     public String getHomePage() {
         return homePage;
     }
@@ -114,6 +123,7 @@ public class Hotel {
         this.homePage = homePage;
     }
 
+    @Override
     public BigDecimal getPrice() {
         return price;
     }
@@ -122,6 +132,7 @@ public class Hotel {
         this.price = price;
     }
 
+    @Override
     public String getCurrency() {
         return currency;
     }
@@ -130,6 +141,7 @@ public class Hotel {
         this.currency = currency;
     }
 
+    @Override
     public Boolean getActive() {
         return active;
     }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.model;
+
+import java.math.BigDecimal;
+
+/**
+ * A read-only view of a hotel.
+ * Reports read hotels by this interface, so a row of a columnar table needs no mutable bean.
+ *
+ * @author Pavel Ponec
+ */
+public interface HotelView {
+
+    Long getId();
+
+    /** Name of the Hotel */
+    String getName();
+
+    /** Description of the hotel */
+    String getNote();
+
+    /** Relation to the City address */
+    City getCity();
+
+    /** Name of the city or {@code null} */
+    String getCityName();
+
+    /** Street of address */
+    String getStreet();
+
+    String getPhone();
+
+    Float getStars();
+
+    /** URL to the HomePage */
+    String getHomePage();
+
+    /** Price per night */
+    BigDecimal getPrice();
+
+    /** Currency of the price */
+    String getCurrency();
+
+    /** Is active */
+    Boolean getActive();
+}
@@ -0,0 +1,647 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A compact binary snapshot of the City table and of the columnar Hotel table with its sorted orders.
+ * The file is created from the CSV sources on the first load and the next start reads
+ * the columns straight to a hotel table, so no hotel bean is created, no order is sorted again
+ * and no text index is built again.
+ * The spatial and facet indexes of the snapshot are built by one pass of the columns.
+ * <br>
+ * The format (big-endian):
+ * <ul>
+ *     <li>header: magic, format version, stamp of CSV sources, payload length, CRC32 of the payload</li>
+ *     <li>cities: row count and columns of IDs, names, countries, country names, latitudes and longitudes</li>
+ *     <li>dictionary of the hotel table: count and strings</li>
+ *     <li>cities of the hotel table: row count and columns of IDs, dictionary codes and coordinates</li>
+ *     <li>hotel table: row count, a flag of the ID column and one array per column</li>
+ *     <li>orders: count and pairs of sorted rows and row positions</li>
+ *     <li>trigram indexes of names and cities: count, codes and posting lists</li>
+ *     <li>fuzzy name index: word count, words, posting lists and columns of tree links</li>
+ * </ul>
+ * A string is a length-prefixed UTF-8 text, a missing string or float is stored as the length {@code -1} or {@code NaN}.
+ * Posting lists are stored as a column of lengths followed by all rows.
+ *
+ * @author Pavel Ponec
+ */
+public final class BinarySnapshot {
+
+    /** File magic: "AJXD" */
+    private static final int MAGIC = 0x414A5844;
+    /** Version of the format */
+    private static final int FORMAT_VERSION = 2;
+    /** Header length in bytes */
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 8;
+    /** Length of a missing string */
+    private static final int NULL_LENGTH = -1;
+    /** Size of the IO buffer */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Cities by the ID */
+    private final Map<Integer, City> cityMap;
+    /** Hotel snapshot with the stored orders */
+    private final HotelSnapshot hotelSnapshot;
+
+    private BinarySnapshot(@NotNull Map<Integer, City> cityMap, @NotNull HotelSnapshot hotelSnapshot) {
+        this.cityMap = cityMap;
+        this.hotelSnapshot = hotelSnapshot;
+    }
+
+    /** Unmodifiable map of cities */
+    @NotNull
+    public Map<Integer, City> getCityMap() {
+        return cityMap;
+    }
+
+    /** A new hotel snapshot of the stored table and orders */
+    @NotNull
+    public HotelSnapshot getHotelSnapshot() {
+        return hotelSnapshot;
+    }
+
+    /**
+     * Read a binary snapshot, the checksum is verified before the columns are read.
+     * @param file A snapshot file
+     * @param stamp The expected stamp of CSV sources
+     * @return The {@code null} value for a missing, outdated or damaged file.
+     */
+    @Nullable
+    public static BinarySnapshot read(@NotNull Path file, long stamp) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH) {
+                return null;
+            }
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining()) {
+                channel.read(header);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC
+                    || header.getInt() != FORMAT_VERSION
+                    || header.getLong() != stamp) {
+                return null;
+            }
+            final long length = header.getLong();
+            final long checksum = header.getLong();
+            if (channel.size() - HEADER_LENGTH != length || checksum(channel) != checksum) {
+                return null;
+            }
+
+            final Input input = new Input(channel, length);
+            final Map<Integer, City> cityMap = readCities(input);
+            final StringDictionary dictionary = StringDictionary.of(input.readStrings(input.readCount(4)));
+            final Map<Integer, City> tableCities = readTableCities(input, dictionary);
+            final int size = input.readCount(4);
+            final long[] ids = input.readInt() != 0 ? input.readLongs(size) : null;
+            final HotelTable table = new HotelTable(ids,
+                    input.readStrings(size),
+                    input.readStrings(size),
+                    input.readStrings(size),
+                    input.readStrings(size),
+                    input.readStrings(size),
+                    dictionary,
+                    input.readInts(size),
+                    input.readInts(size),
+                    input.readInts(size),
+                    input.readInts(size),
+                    input.readFloats(size),
+                    input.readLongs(size),
+                    BitSet.valueOf(input.readLongs(input.readCount(8))),
+                    tableCities);
+            final int[][] orders = new int[input.readCount(4)][];
+            final int[][] positions = new int[orders.length][];
+            for (int i = 0; i < orders.length; i++) {
+                orders[i] = input.readInts(size);
+                positions[i] = input.readInts(size);
+            }
+            final TrigramIndex nameIndex = readTrigrams(input);
+            final TrigramIndex cityIndex = readTrigrams(input);
+            final String[] words = input.readStrings(input.readCount(4));
+            final char[][] wordChars = new char[words.length][];
+            for (int i = 0; i < words.length; i++) {
+                wordChars[i] = words[i].toCharArray();
+            }
+            final int[][] wordPostings = input.readPostings(words.length);
+            final int[][] tree = {input.readInts(words.length), input.readInts(words.length), input.readInts(words.length)};
+            if (input.remaining != 0 || orders.length != HotelSnapshot.orderCount()) {
+                return null;
+            }
+            return new BinarySnapshot(cityMap, HotelSnapshot.of(table, orders, positions,
+                    nameIndex, cityIndex, FuzzyIndex.of(wordChars, wordPostings, tree)));
+        }
+    }
+
+    /** Read all cities */
+    @NotNull
+    private static Map<Integer, City> readCities(@NotNull Input input) throws IOException {
+        final int count = input.readCount(4);
+        final int[] ids = input.readInts(count);
+        final String[] names = input.readStrings(count);
+        final String[] countries = input.readStrings(count);
+        final String[] countryNames = input.readStrings(count);
+        final float[] latitudes = input.readFloats(count);
+        final float[] longitudes = input.readFloats(count);
+        final Map<Integer, City> result = new LinkedHashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            result.put(ids[i], city(ids[i], names[i], countries[i], countryNames[i], latitudes[i], longitudes[i]));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /** Read cities of the hotel table, their strings are shared by the dictionary */
+    @NotNull
+    private static Map<Integer, City> readTableCities(@NotNull Input input, @NotNull StringDictionary dictionary)
+            throws IOException {
+        final int count = input.readCount(4);
+        final int[] ids = input.readInts(count);
+        final int[] names = input.readInts(count);
+        final int[] countries = input.readInts(count);
+        final int[] countryNames = input.readInts(count);
+        final float[] latitudes = input.readFloats(count);
+        final float[] longitudes = input.readFloats(count);
+        final Map<Integer, City> result = new LinkedHashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            result.put(ids[i], city(ids[i],
+                    decode(dictionary, names[i]),
+                    decode(dictionary, countries[i]),
+                    decode(dictionary, countryNames[i]),
+                    latitudes[i],
+                    longitudes[i]));
+        }
+        return result;
+    }
+
+    /** Read a trigram index: count, codes and posting lists */
+    @NotNull
+    private static TrigramIndex readTrigrams(@NotNull Input input) throws IOException {
+        final int count = input.readCount(8);
+        return TrigramIndex.of(input.readLongs(count), input.readPostings(count));
+    }
+
+    private static void writeTrigrams(@NotNull Output out, @NotNull TrigramIndex index) throws IOException {
+        final long[] codes = index.codes();
+        out.writeInt(codes.length);
+        for (long code : codes) {
+            out.writeLong(code);
+        }
+        out.writePostings(index.postings());
+    }
+
+    /**
+     * Write a binary snapshot through a file channel and replace the file atomically.
+     * @param file A snapshot file
+     * @param stamp A stamp of CSV sources
+     * @param cities All cities
+     * @param hotels A hotel snapshot, its table and orders are stored
+     */
+    public static void write(
+            @NotNull Path file,
+            long stamp,
+            @NotNull Collection<City> cities,
+            @NotNull HotelSnapshot hotels) throws IOException {
+        final HotelTable table = hotels.getTable();
+        final StringDictionary dictionary = table.getDictionary();
+        final int size = table.size();
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path tempFile = Files.createTempFile(directory, "snapshot", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                final Output out = new Output(channel);
+                out.writeInt(cities.size());
+                for (City city : cities) {
+                    out.writeInt(city.getId());
+                }
+                for (City city : cities) {
+                    out.writeString(city.getName());
+                }
+                for (City city : cities) {
+                    out.writeString(city.getCountry());
+                }
+                for (City city : cities) {
+                    out.writeString(city.getCountryName());
+                }
+                for (City city : cities) {
+                    out.writeFloat(primitive(city.getLatitude()));
+                }
+                for (City city : cities) {
+                    out.writeFloat(primitive(city.getLongitude()));
+                }
+
+                out.writeInt(dictionary.size());
+                for (int code = 0; code < dictionary.size(); code++) {
+                    out.writeString(dictionary.decode(code));
+                }
+
+                final Collection<City> tableCities = table.getCities().asMap().values();
+                out.writeInt(tableCities.size());
+                for (City city : tableCities) {
+                    out.writeInt(city.getId());
+                }
+                for (City city : tableCities) {
+                    out.writeInt(code(dictionary, city.getName()));
+                }
+                for (City city : tableCities) {
+                    out.writeInt(code(dictionary, city.getCountry()));
+                }
+                for (City city : tableCities) {
+                    out.writeInt(code(dictionary, city.getCountryName()));
+                }
+                for (City city : tableCities) {
+                    out.writeFloat(primitive(city.getLatitude()));
+                }
+                for (City city : tableCities) {
+                    out.writeFloat(primitive(city.getLongitude()));
+                }
+
+                out.writeInt(size);
+                final boolean hasIds = IntStream.range(0, size).anyMatch(row -> table.getId(row) != HotelTable.NO_ID);
+                out.writeInt(hasIds ? 1 : 0);
+                for (int row = 0; hasIds && row < size; row++) {
+                    out.writeLong(table.getId(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeString(table.getName(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeString(table.getNote(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeString(table.getStreet(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeString(table.getPhone(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeString(table.getHomePage(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeInt(table.getCurrencyCode(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeInt(table.getCityNameCode(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeInt(table.getCountryCode(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeInt(table.getCityId(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeFloat(table.getStars(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeLong(table.getPriceCents(row));
+                }
+                // Words of the active bitmap:
+                out.writeInt((size + 63) >>> 6);
+                for (int word = 0; word < size; word += 64) {
+                    long bits = 0L;
+                    for (int row = word; row < Math.min(word + 64, size); row++) {
+                        bits |= table.isActive(row) ? 1L << (row - word) : 0L;
+                    }
+                    out.writeLong(bits);
+                }
+
+                out.writeInt(HotelSnapshot.orderCount());
+                for (HotelColumn column : HotelColumn.values()) {
+                    for (boolean descending : new boolean[]{false, true}) {
+                        for (int position = 0; position < size; position++) {
+                            out.writeInt(hotels.rowAt(column, descending, position));
+                        }
+                        for (int row = 0; row < size; row++) {
+                            out.writeInt(hotels.position(column, descending, row));
+                        }
+                    }
+                }
+                writeTrigrams(out, hotels.getNameIndex());
+                writeTrigrams(out, hotels.getCityIndex());
+                final FuzzyIndex fuzzyIndex = hotels.getFuzzyNameIndex();
+                out.writeInt(fuzzyIndex.words().length);
+                for (char[] word : fuzzyIndex.words()) {
+                    out.writeString(new String(word));
+                }
+                out.writePostings(fuzzyIndex.postings());
+                for (int[] links : fuzzyIndex.tree()) {
+                    out.writeInts(links);
+                }
+                out.writeHeader(stamp);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * A stamp of CSV sources from their URL, size and the last modification.
+     * @param sources Data sources
+     */
+    public static long stamp(@NotNull URL... sources) throws IOException {
+        long result = FORMAT_VERSION;
+        for (URL source : sources) {
+            final URLConnection connection = source.openConnection();
+            try {
+                result = 31 * result + source.toExternalForm().hashCode();
+                result = 31 * result + connection.getContentLengthLong();
+                result = 31 * result + connection.getLastModified();
+            } finally {
+                connection.getInputStream().close();
+            }
+        }
+        return result;
+    }
+
+    /** CRC32 of the payload */
+    private static long checksum(@NotNull FileChannel channel) throws IOException {
+        final CRC32 result = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        channel.position(HEADER_LENGTH);
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            result.update(buffer);
+            buffer.clear();
+        }
+        channel.position(HEADER_LENGTH);
+        return result.getValue();
+    }
+
+    @NotNull
+    private static City city(int id, @Nullable String name, @Nullable String country, @Nullable String countryName,
+            float latitude, float longitude) {
+        final City result = new City();
+        result.setId(id);
+        result.setName(name);
+        result.setCountry(country);
+        result.setCountryName(countryName);
+        result.setLatitude(boxed(latitude));
+        result.setLongitude(boxed(longitude));
+        return result;
+    }
+
+    /** Code of a dictionary string, the dictionary of a published table is not modified */
+    private static int code(@NotNull StringDictionary dictionary, @Nullable String text) throws IOException {
+        final int result = dictionary.codeOf(text);
+        if (result == StringDictionary.UNKNOWN_CODE) {
+            throw new IOException("Unknown dictionary string: " + text);
+        }
+        return result;
+    }
+
+    @Nullable
+    private static String decode(@NotNull StringDictionary dictionary, int code) throws IOException {
+        if (code < StringDictionary.NULL_CODE || code >= dictionary.size()) {
+            throw new IOException("Unknown dictionary code: " + code);
+        }
+        return dictionary.decode(code);
+    }
+
+    private static float primitive(@Nullable Float value) {
+        return value != null ? value : Float.NaN;
+    }
+
+    @Nullable
+    private static Float boxed(float value) {
+        return Float.isNaN(value) ? null : value;
+    }
+
+    /** A buffered reader of the payload, array columns are read by bulk copies */
+    private static final class Input {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        /** Unread bytes of the payload */
+        private long remaining;
+
+        Input(@NotNull FileChannel channel, long length) {
+            this.channel = channel;
+            this.remaining = length;
+            buffer.limit(0);
+        }
+
+        /** Make the bytes available in the buffer */
+        private void require(int bytes) throws IOException {
+            if (bytes > remaining) {
+                throw new IOException("Unexpected end of the snapshot");
+            }
+            remaining -= bytes;
+            if (buffer.remaining() < bytes) {
+                buffer.compact();
+                while (buffer.position() < bytes) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Unexpected end of the file");
+                    }
+                }
+                buffer.flip();
+            }
+        }
+
+        /** Read a count of items and check the remaining bytes */
+        int readCount(int itemBytes) throws IOException {
+            final int result = readInt();
+            if (result < 0 || (long) result * itemBytes > remaining) {
+                throw new IOException("Invalid count: " + result);
+            }
+            return result;
+        }
+
+        int readInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        @NotNull
+        int[] readInts(int count) throws IOException {
+            final int[] result = new int[count];
+            for (int i = 0; i < count; ) {
+                final int chunk = Math.min(count - i, BUFFER_SIZE / Integer.BYTES);
+                require(chunk * Integer.BYTES);
+                buffer.asIntBuffer().get(result, i, chunk);
+                buffer.position(buffer.position() + chunk * Integer.BYTES);
+                i += chunk;
+            }
+            return result;
+        }
+
+        /** Read row lists: a column of lengths and all rows by one bulk copy */
+        @NotNull
+        int[][] readPostings(int count) throws IOException {
+            final int[] lengths = readInts(count);
+            final long total = Arrays.stream(lengths).asLongStream().sum();
+            if (total > Integer.MAX_VALUE || Arrays.stream(lengths).anyMatch(length -> length < 0)) {
+                throw new IOException("Invalid posting lengths");
+            }
+            final int[] rows = readInts((int) total);
+            final int[][] result = new int[count][];
+            for (int i = 0, from = 0; i < count; from += lengths[i++]) {
+                result[i] = Arrays.copyOfRange(rows, from, from + lengths[i]);
+            }
+            return result;
+        }
+
+        @NotNull
+        long[] readLongs(int count) throws IOException {
+            final long[] result = new long[count];
+            for (int i = 0; i < count; ) {
+                final int chunk = Math.min(count - i, BUFFER_SIZE / Long.BYTES);
+                require(chunk * Long.BYTES);
+                buffer.asLongBuffer().get(result, i, chunk);
+                buffer.position(buffer.position() + chunk * Long.BYTES);
+                i += chunk;
+            }
+            return result;
+        }
+
+        @NotNull
+        float[] readFloats(int count) throws IOException {
+            final float[] result = new float[count];
+            for (int i = 0; i < count; ) {
+                final int chunk = Math.min(count - i, BUFFER_SIZE / Float.BYTES);
+                require(chunk * Float.BYTES);
+                buffer.asFloatBuffer().get(result, i, chunk);
+                buffer.position(buffer.position() + chunk * Float.BYTES);
+                i += chunk;
+            }
+            return result;
+        }
+
+        @NotNull
+        String[] readStrings(int count) throws IOException {
+            final String[] result = new String[count];
+            for (int i = 0; i < count; i++) {
+                final int length = readInt();
+                if (length == NULL_LENGTH) {
+                    continue;
+                } else if (length < 0 || length > remaining) {
+                    throw new IOException("Invalid string length: " + length);
+                }
+                final byte[] bytes = new byte[length];
+                for (int offset = 0; offset < length; ) {
+                    final int chunk = Math.min(length - offset, BUFFER_SIZE);
+                    require(chunk);
+                    buffer.get(bytes, offset, chunk);
+                    offset += chunk;
+                }
+                result[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return result;
+        }
+    }
+
+    /** A buffered writer of the payload, which counts its length and checksum */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        /** Written bytes of the payload */
+        private long length;
+
+        Output(@NotNull FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.position(HEADER_LENGTH);
+        }
+
+        /** Make a free space in the buffer */
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            length += bytes;
+        }
+
+        void writeInt(int value) throws IOException {
+            require(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            require(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void writeFloat(float value) throws IOException {
+            require(Float.BYTES);
+            buffer.putFloat(value);
+        }
+
+        void writeInts(@NotNull int[] values) throws IOException {
+            for (int value : values) {
+                writeInt(value);
+            }
+        }
+
+        /** Write row lists: a column of lengths and all rows */
+        void writePostings(@NotNull int[][] postings) throws IOException {
+            for (int[] rows : postings) {
+                writeInt(rows.length);
+            }
+            for (int[] rows : postings) {
+                writeInts(rows);
+            }
+        }
+
+        void writeString(@Nullable String text) throws IOException {
+            if (text == null) {
+                writeInt(NULL_LENGTH);
+                return;
+            }
+            final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                final int chunk = Math.min(bytes.length - offset, BUFFER_SIZE);
+                require(chunk);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        /** Write buffered bytes to the channel */
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.array(), 0, buffer.limit());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /** Flush the payload and write the header with its length and checksum */
+        void writeHeader(long stamp) throws IOException {
+            flush();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putLong(stamp);
+            header.putLong(length);
+            header.putLong(crc.getValue());
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable lookup of cities by a primitive ID without any boxing.
+ * Compact IDs are resolved by a dense array indexed by the ID,
+ * other IDs by an open-addressing hash table with the linear probing.
+ *
+ * @author Pavel Ponec
+ */
+public final class CityIndex {
+
+    /** An index without cities */
+    public static final CityIndex EMPTY = of(Collections.emptyMap());
+
+    /** Max ratio of the ID range to the city count for the dense array */
+    private static final int DENSE_RATIO = 4;
+    /** Min length of the dense array regardless of the city count */
+    private static final int DENSE_MIN_LENGTH = 1024;
+
+    /** Cities by the ID */
+    private final Map<Integer, City> map;
+    /** The least ID of the dense array */
+    private final int minId;
+    /** Cities by the ID minus the least ID, or {@code null} for the hash table */
+    private final City[] dense;
+    /** IDs of the hash table */
+    private final int[] keys;
+    /** Cities of the hash table, the {@code null} value is a free slot */
+    private final City[] values;
+
+    private CityIndex(@NotNull Map<Integer, City> map) {
+        this.map = map;
+        final int min = map.keySet().stream().mapToInt(Integer::intValue).min().orElse(0);
+        final int max = map.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+        final long range = (long) max - min + 1;
+        if (range <= Math.max(DENSE_MIN_LENGTH, (long) map.size() * DENSE_RATIO)) {
+            this.minId = min;
+            this.dense = new City[(int) range];
+            map.forEach((id, city) -> dense[id - min] = city);
+            this.keys = null;
+            this.values = null;
+        } else {
+            this.minId = 0;
+            this.dense = null;
+            final int capacity = Integer.highestOneBit(Math.max(map.size(), 1) * 2 - 1) << 1;
+            this.keys = new int[capacity];
+            this.values = new City[capacity];
+            map.forEach((id, city) -> {
+                int slot = slot(id);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                keys[slot] = id;
+                values[slot] = city;
+            });
+        }
+    }
+
+    /**
+     * Returns a city of the ID.
+     * @return The {@code null} value for an unknown ID.
+     */
+    @Nullable
+    public City get(int id) {
+        if (dense != null) {
+            final long index = (long) id - minId;
+            return index >= 0 && index < dense.length ? dense[(int) index] : null;
+        }
+        final int mask = values.length - 1;
+        for (int slot = slot(id); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    /** Unmodifiable map of cities by the ID */
+    @NotNull
+    public Map<Integer, City> asMap() {
+        return map;
+    }
+
+    /** Count of cities */
+    public int size() {
+        return map.size();
+    }
+
+    /** A slot of the ID in the hash table */
+    private int slot(int id) {
+        final int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (values.length - 1);
+    }
+
+    /** Create an index of the cities, the map is copied */
+    @NotNull
+    public static CityIndex of(@NotNull Map<Integer, City> cities) {
+        return new CityIndex(Collections.unmodifiableMap(new LinkedHashMap<>(cities)));
+    }
+
+    @Override
+    public String toString() {
+        return "CityIndex{size=" + map.size() + ", dense=" + (dense != null) + '}';
+    }
+}
@@ -5,13 +5,14 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
-import org.ujorm.tools.common.StreamUtils;
+import org.jetbrains.annotations.Nullable;
 
 /**
  *
@@ -21,40 +22,99 @@ public class CityResourceService {
 
     /** Logger */
     private static final Logger LOGGER = Logger.getLogger(CityResourceService.class.toString());
-    private static final String CITY_CSV = "/csv/ResourceCity.csv";
+    /** Classpath resource of cities */
+    static final String CITY_CSV = "/csv/ResourceCity.csv";
 
-    private Map<Integer,City> cityMap = null;
+    /** URL of the data source */
+    private final URL cityUrl;
+
+    /** City index shared by all requests, the reference is replaced by a reload */
+    private final AtomicReference<CityIndex> cityIndex = new AtomicReference<>();
+
+    public CityResourceService() {
+        this(CityResourceService.class.getResource(CITY_CSV));
+    }
+
+    /** City service with a data source */
+    public CityResourceService(@NotNull URL cityUrl) {
+        this.cityUrl = cityUrl;
+    }
+
+    /** URL of the data source */
+    @NotNull
+    public URL getCityUrl() {
+        return cityUrl;
+    }
 
     @NotNull
     public City getCity(String id) {
-        return getCity(Integer.valueOf(id));
+        return getCity(Integer.parseInt(id));
     }
 
+    /** Returns a city of the ID or the {@link City#UNKNOWN} for a missing ID */
     @NotNull
-    public City getCity(Integer id) {
-        try {
-            final City result = getCityMap().get(id);
-            return result != null
-                    ? result
-                    : new City();
-        } catch (IOException e) {
-            return new City();
-        }
+    public City getCity(@Nullable Integer id) {
+        return id != null ? getCity(id.intValue()) : City.UNKNOWN;
     }
 
-    public Map<Integer,City> getCityMap() throws IOException {
-        if (cityMap == null) {
-            synchronized (this) {
-                try (Stream<City> cityStream =  loadCityStream()) {
-                    cityMap = cityStream.collect(Collectors.toMap(City::getId, Function.identity()));
-                    Object a = "x";
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "City reading fails", e);
-                    return Collections.emptyMap();
-                }
+    /**
+     * Returns a city of the ID or the shared {@link City#UNKNOWN} city without any allocation.
+     * A returned city is shared by all hotels of the city, so it must not be modified.
+     */
+    @NotNull
+    public City getCity(int id) {
+        final City result = getCityIndex().get(id);
+        return result != null ? result : City.UNKNOWN;
+    }
+
+    /** Returns the current city map, the first map is loaded lazily */
+    public Map<Integer,City> getCityMap() {
+        return getCityIndex().asMap();
+    }
+
+    /** Returns the current city index, the first index is loaded lazily */
+    @NotNull
+    public CityIndex getCityIndex() {
+        CityIndex result = cityIndex.get();
+        if (result == null) {
+            final Map<Integer,City> loaded = loadCityMap();
+            if (loaded == null) {
+                return CityIndex.EMPTY;
             }
+            final CityIndex index = CityIndex.of(loaded);
+            result = cityIndex.compareAndSet(null, index) ? index : cityIndex.get();
+        }
+        return result;
+    }
+
+    /**
+     * Load a new city map and publish it by an atomic swap.
+     * Hotels of the current snapshot keep their original cities.
+     */
+    public Map<Integer,City> reload() {
+        final Map<Integer,City> loaded = loadCityMap();
+        if (loaded != null) {
+            cityIndex.set(CityIndex.of(loaded));
+            LOGGER.log(Level.INFO, "Cities reloaded: {0}", loaded.size());
+        }
+        return getCityMap();
+    }
+
+    /** Publish a city map loaded by another way */
+    public void publish(@NotNull Map<Integer,City> cities) {
+        cityIndex.set(CityIndex.of(cities));
+    }
+
+    /** Load an unmodifiable city map or returns {@code null} in case of failure */
+    @Nullable
+    protected Map<Integer,City> loadCityMap() {
+        try (Stream<City> cityStream = loadCityStream()) {
+            return Collections.unmodifiableMap(cityStream
+                    .collect(Collectors.toMap(City::getId, Function.identity())));
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "City reading fails", e);
+            return null;
         }
-        return cityMap;
     }
 
     /**
@@ -62,7 +122,7 @@ public class CityResourceService {
      * @return
      */
     public Stream<City> loadCityStream() throws IOException {
-        return loadCitys(getClass().getResource(CITY_CSV));
+        return loadCitys(cityUrl);
     }
 
     /**
@@ -80,25 +140,19 @@ public class CityResourceService {
      * @return
      */
     protected Stream<City> loadCitys(URL url) throws IOException {
-
-        return StreamUtils.rowsOfUrl(url)
-                .filter(t -> !t.startsWith("* "))
-                .filter(t -> !t.startsWith("ID;"))
-                .map(t -> {
-                    City city = null;
-                    String[] c = t.split(";");
-                    if (c.length > 5) {
-                        city = new City();
-                        city.setId(Integer.valueOf(c[0]));
-                        city.setName(c[1]);
-                        city.setCountry(c[2]);
-                        city.setCountryName(c[3]);
-                        city.setLatitude(Float.parseFloat(c[4]));
-                        city.setLongitude(Float.parseFloat(c[5]));
-                    }
-                    return city;
-                })
-                .filter(t -> t != null);
+        return CsvReader.of(url, "ID;").stream(c -> {
+            City city = null;
+            if (c.getColumnCount() > 5) {
+                city = new City();
+                city.setId(c.getInt(0));
+                city.setName(c.getString(1));
+                city.setCountry(c.getString(2));
+                city.setCountryName(c.getString(3));
+                city.setLatitude(c.getFloat(4));
+                city.setLongitude(c.getFloat(5));
+            }
+            return city;
+        });
     }
 
 }
@@ -0,0 +1,319 @@
+package net.ponec.demo.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A streaming CSV reader working on bytes of the UTF-8 source.
+ * The reader finds the column delimiters in place and parses numbers directly from bytes,
+ * a String is created for text columns only.
+ * Rows starting with the comment prefix {@code "* "} or with the header prefix are skipped.
+ * The source is read by a growing buffer, not memory-mapped, because a watched data file can be rewritten during the reading.
+ *
+ * @author Pavel Ponec
+ */
+public final class CsvReader implements Closeable {
+
+    /** Prefix of comment rows */
+    public static final String COMMENT_PREFIX = "* ";
+    /** Column delimiter */
+    private static final byte DELIMITER = ';';
+    /** Size of the read buffer */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** The max count of decimal digits parsed without an overflow */
+    private static final int MAX_DIGITS = 18;
+    /** The max integer with an exact double value */
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    /** Powers of ten */
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    /** Stream source */
+    private final InputStream input;
+    /** Comment prefix in bytes */
+    private final byte[] commentPrefix;
+    /** Header prefix in bytes */
+    private final byte[] headerPrefix;
+    /** Bytes of the source, valid bytes are up to the limit */
+    private ByteBuffer buffer;
+    /** Start of the unread bytes */
+    private int position = 0;
+    /** The input is exhausted */
+    private boolean eof;
+    /** Start positions of columns of the current row */
+    private int[] starts = new int[16];
+    /** End positions of columns of the current row */
+    private int[] ends = new int[16];
+    /** Column count of the current row */
+    private int columnCount = 0;
+    /** Scale of the last parsed decimal number, a negative value means an unsupported format */
+    private int scale;
+
+    private CsvReader(@NotNull InputStream input, @NotNull ByteBuffer buffer, @NotNull String headerPrefix) {
+        this.input = input;
+        this.buffer = buffer;
+        this.commentPrefix = COMMENT_PREFIX.getBytes(StandardCharsets.UTF_8);
+        this.headerPrefix = headerPrefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Move to the next data row.
+     * @return Returns {@code false} at the end of source.
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int end = indexOfLineEnd(position);
+            while (end < 0 && !eof) {
+                fill();
+                end = indexOfLineEnd(position);
+            }
+            final int limit = buffer.limit();
+            if (end < 0) {
+                if (position >= limit) {
+                    columnCount = 0;
+                    return false;
+                }
+                end = limit;
+            }
+            final int start = position;
+            position = Math.min(end + 1, limit);
+            final int lineEnd = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+            if (!startsWith(start, lineEnd, commentPrefix)
+                    && (headerPrefix.length == 0 || !startsWith(start, lineEnd, headerPrefix))) {
+                split(start, lineEnd);
+                return true;
+            }
+        }
+    }
+
+    /** Index of the new line character or {@code -1} */
+    private int indexOfLineEnd(int from) {
+        for (int i = from, max = buffer.limit(); i < max; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startsWith(int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Find column bounds, trailing empty columns are ignored like by the {@link String#split(String)} */
+    private void split(int start, int end) {
+        columnCount = 0;
+        int columnStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == DELIMITER) {
+                if (columnCount == starts.length) {
+                    starts = Arrays.copyOf(starts, columnCount << 1);
+                    ends = Arrays.copyOf(ends, columnCount << 1);
+                }
+                starts[columnCount] = columnStart;
+                ends[columnCount] = i;
+                columnCount++;
+                columnStart = i + 1;
+            }
+        }
+        while (columnCount > 0 && starts[columnCount - 1] == ends[columnCount - 1]) {
+            columnCount--;
+        }
+    }
+
+    /** Move unread bytes to the buffer start and read more bytes */
+    private void fill() throws IOException {
+        final byte[] bytes = buffer.array();
+        final int remaining = buffer.limit() - position;
+        System.arraycopy(bytes, position, bytes, 0, remaining);
+        position = 0;
+        byte[] target = bytes;
+        if (remaining == bytes.length) {
+            target = Arrays.copyOf(bytes, bytes.length << 1);
+        }
+        final int count = input.read(target, remaining, target.length - remaining);
+        if (count < 0) {
+            eof = true;
+        }
+        buffer = ByteBuffer.wrap(target, 0, remaining + Math.max(0, count));
+    }
+
+    /** Column count of the current row */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /** Text value of the column */
+    @NotNull
+    public String getString(int column) {
+        final int start = starts[column];
+        return new String(buffer.array(), buffer.arrayOffset() + start, ends[column] - start, StandardCharsets.UTF_8);
+    }
+
+    /** Integer value of the column */
+    public int getInt(int column) {
+        final long result = getLong(column);
+        if (result != (int) result) {
+            throw new NumberFormatException(getString(column));
+        }
+        return (int) result;
+    }
+
+    /** Long value of the column */
+    public long getLong(int column) {
+        int i = starts[column];
+        final int end = ends[column];
+        final boolean negative = i < end && buffer.get(i) == '-';
+        if (i < end && (negative || buffer.get(i) == '+')) {
+            i++;
+        }
+        if (i == end || end - i > MAX_DIGITS) {
+            return Long.parseLong(getString(column));
+        }
+        long result = 0L;
+        for (; i < end; i++) {
+            final int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(getString(column));
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    /** Float value of the column, an unusual format is parsed by the {@link Float#parseFloat(String)} */
+    public float getFloat(int column) {
+        final long unscaled = parseUnscaled(column);
+        return scale >= 0 && Math.abs(unscaled) <= MAX_EXACT_DOUBLE
+                ? (float) (unscaled / POW10[scale])
+                : Float.parseFloat(getString(column));
+    }
+
+    /** Decimal value of the column, an unusual format is parsed by the {@link BigDecimal} constructor */
+    @NotNull
+    public BigDecimal getDecimal(int column) {
+        final long unscaled = parseUnscaled(column);
+        return scale >= 0
+                ? BigDecimal.valueOf(unscaled, scale)
+                : new BigDecimal(getString(column));
+    }
+
+    /** Boolean value of the column, the result is {@code true} for the text "true" ignoring the case */
+    public boolean getBoolean(int column) {
+        final int start = starts[column];
+        if (ends[column] - start != 4) {
+            return false;
+        }
+        return (buffer.get(start) | 0x20) == 't'
+            && (buffer.get(start + 1) | 0x20) == 'r'
+            && (buffer.get(start + 2) | 0x20) == 'u'
+            && (buffer.get(start + 3) | 0x20) == 'e';
+    }
+
+    /** Parse a plain decimal number to an unscaled value and assign the scale */
+    private long parseUnscaled(int column) {
+        int i = starts[column];
+        final int end = ends[column];
+        scale = -1;
+        final boolean negative = i < end && buffer.get(i) == '-';
+        if (i < end && (negative || buffer.get(i) == '+')) {
+            i++;
+        }
+        long result = 0L;
+        int digits = 0;
+        int dot = -1;
+        for (; i < end; i++) {
+            final byte b = buffer.get(i);
+            if (b == '.' && dot < 0) {
+                dot = i;
+            } else if (b >= '0' && b <= '9' && digits < MAX_DIGITS) {
+                result = result * 10 + (b - '0');
+                digits++;
+            } else {
+                return 0L;
+            }
+        }
+        if (digits == 0) {
+            return 0L;
+        }
+        scale = dot < 0 ? 0 : end - dot - 1;
+        return negative ? -result : result;
+    }
+
+    /** Stream of mapped rows, the {@code null} results are excluded. The stream closes the reader. */
+    @NotNull
+    public <T> Stream<T> stream(@NotNull Function<CsvReader, T> mapper) {
+        final Iterator<T> iterator = new Iterator<T>() {
+            private T item;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (item == null && CsvReader.this.next()) {
+                        item = mapper.apply(CsvReader.this);
+                    }
+                    return item != null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final T result = item;
+                item = null;
+                return result;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Open a CSV reader
+     * @param url A data source in the UTF-8
+     * @param headerPrefix A prefix of the header row, an empty text skips no header.
+     */
+    @NotNull
+    public static CsvReader of(@NotNull URL url, @NotNull String headerPrefix) throws IOException {
+        return new CsvReader(url.openStream(), ByteBuffer.wrap(new byte[BUFFER_SIZE], 0, 0), headerPrefix);
+    }
+}
@@ -0,0 +1,309 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.HotelView;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.ujorm.tools.web.table.Direction;
+import org.ujorm.tools.web.table.GridBuilder;
+
+/**
+ * Services and data shared by all servlets of the web application.
+ * The data is loaded eagerly and the hot paths are warmed up before the application is ready.
+ *
+ * @author Pavel Ponec
+ */
+public class DataRegistry implements Closeable {
+
+    /** Logger */
+    private static final Logger LOGGER = Logger.getLogger(DataRegistry.class.getName());
+    /** System property of an optional external directory with CSV files */
+    public static final String DATA_DIR_PROPERTY = "ajax-demo.data.dir";
+    /** System property of the binary snapshot file */
+    public static final String SNAPSHOT_FILE_PROPERTY = "ajax-demo.snapshot.file";
+    /** A private directory of the default snapshot file in the user home */
+    private static final String SNAPSHOT_DIR = ".ajax-demo";
+    /** Max count of the warm-up queries, enough for the JIT compilation of the hot paths */
+    private static final int WARM_UP_QUERIES = 10_000;
+    /** Max time of the warm-up in milliseconds, see the system property {@code ajax-demo.warmup.millis} */
+    private static final long WARM_UP_MILLIS = Long.getLong("ajax-demo.warmup.millis", 3_000L);
+    /** Name patterns of the warm-up queries */
+    private static final String[] WARM_UP_PATTERNS = {"", "a", "ho", "hotel", "inn", "xyz"};
+    /** Samples of the regular expression warm-up */
+    private static final String[][] WARM_UP_REGEXPS = {
+            {"[aeiyou]", "\"Write once, run anywhere.\" -- Sun Microsystems"},
+            {"\\w+", "Simple AJAX demo based on Java"}};
+
+    private final CityResourceService cityService;
+    private final HotelService hotelService;
+    private final RegexpService regexpService;
+    /** A directory of data files for watching or {@code null} */
+    @Nullable
+    private final Path dataDirectory;
+    /** A binary snapshot file of all data or {@code null} if the snapshot is disabled */
+    @Nullable
+    private final Path snapshotFile;
+    /** The hot paths are warmed up */
+    private volatile boolean warmedUp = false;
+    /** A watcher of data files */
+    @Nullable
+    private DataWatcher watcher;
+
+    /** Data registry with a directory from the system property or with the classpath resources */
+    public DataRegistry() {
+        this(Optional.ofNullable(System.getProperty(DATA_DIR_PROPERTY))
+                .map(Paths::get)
+                .orElse(null));
+    }
+
+    /**
+     * Data registry
+     * @param dataDirectory An external directory with CSV files,
+     * the {@code null} value means the classpath resources.
+     */
+    public DataRegistry(@Nullable Path dataDirectory) {
+        final URL cityUrl = dataUrl(dataDirectory, CityResourceService.CITY_CSV);
+        final URL hotelUrl = dataUrl(dataDirectory, HotelService.HOTELS_CSV);
+        this.cityService = new CityResourceService(cityUrl);
+        this.hotelService = new HotelService(cityService, hotelUrl);
+        this.regexpService = new RegexpService();
+        this.dataDirectory = dataDirectory != null ? dataDirectory : fileDirectory(hotelUrl);
+        this.snapshotFile = Optional.ofNullable(System.getProperty(SNAPSHOT_FILE_PROPERTY))
+                .map(Paths::get)
+                .orElseGet(DataRegistry::defaultSnapshotFile);
+    }
+
+    @NotNull
+    public CityResourceService getCityService() {
+        return cityService;
+    }
+
+    @NotNull
+    public HotelService getHotelService() {
+        return hotelService;
+    }
+
+    @NotNull
+    public RegexpService getRegexpService() {
+        return regexpService;
+    }
+
+    /** The data is loaded and the hot paths are warmed up */
+    public boolean isReady() {
+        return warmedUp && hotelService.isLoaded();
+    }
+
+    /**
+     * Load all data eagerly, the binary snapshot is preferred.
+     * A missing or outdated binary snapshot is created from CSV files.
+     */
+    public void load() throws IOException {
+        final long start = System.currentTimeMillis();
+        final long stamp = BinarySnapshot.stamp(cityService.getCityUrl(), hotelService.getHotelUrl());
+        final BinarySnapshot binary = snapshotFile != null ? readBinarySnapshot(stamp) : null;
+        if (binary != null) {
+            cityService.publish(binary.getCityMap());
+            hotelService.publish(binary.getHotelSnapshot());
+        } else {
+            cityService.getCityMap();
+            hotelService.getSnapshot();
+            writeBinarySnapshot(stamp);
+        }
+        LOGGER.log(Level.INFO, "Loaded {0} cities and {1} from {2} in {3} ms", new Object[]{
+                cityService.getCityMap().size(),
+                hotelService.getSnapshot(),
+                binary != null ? snapshotFile : "CSV",
+                System.currentTimeMillis() - start});
+    }
+
+    /**
+     * Reload all data off the request path, each service publishes its new data by an atomic swap.
+     * Hotels are reloaded after cities because they refer to them.
+     */
+    public synchronized void reload() {
+        final long start = System.currentTimeMillis();
+        cityService.reload();
+        final HotelSnapshot snapshot = hotelService.reload();
+        LOGGER.log(Level.INFO, "Reloaded {0} in {1} ms", new Object[]{
+                snapshot, System.currentTimeMillis() - start});
+        try {
+            writeBinarySnapshot(BinarySnapshot.stamp(cityService.getCityUrl(), hotelService.getHotelUrl()));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Binary snapshot can't be updated", e);
+        }
+    }
+
+    /** Read the binary snapshot or returns {@code null} */
+    @Nullable
+    private BinarySnapshot readBinarySnapshot(long stamp) {
+        try {
+            return BinarySnapshot.read(snapshotFile, stamp);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Binary snapshot can't be read: " + snapshotFile, e);
+            return null;
+        }
+    }
+
+    /** Write current data to the binary snapshot */
+    private void writeBinarySnapshot(long stamp) {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            BinarySnapshot.write(snapshotFile, stamp,
+                    cityService.getCityMap().values(),
+                    hotelService.getSnapshot());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Binary snapshot can't be written: " + snapshotFile, e);
+        }
+    }
+
+    /** Start watching of data files if the data source is a directory */
+    public synchronized void startWatching() throws IOException {
+        if (dataDirectory != null && watcher == null) {
+            watcher = DataWatcher.start(dataDirectory, Arrays.asList(
+                    fileName(CityResourceService.CITY_CSV),
+                    fileName(HotelService.HOTELS_CSV)),
+                    this::reload);
+        }
+    }
+
+    /** Stop watching of data files */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Run typical queries to compile the hot paths by JIT.
+     * The warm-up is bounded by a query count and by a time, so it doesn't depend on the row count.
+     * The registry is ready after the warm-up if hotels are loaded, a failed load can be fixed by a later reload.
+     */
+    public void warmUp() {
+        final long start = System.currentTimeMillis();
+        final long deadline = start + WARM_UP_MILLIS;
+        final List<GridBuilder<HotelView>> builders = warmUpGrids();
+        final int queriesPerRound = builders.size() * WARM_UP_PATTERNS.length * 2;
+        int query = 0;
+        for (; query < WARM_UP_QUERIES
+                && System.currentTimeMillis() < deadline
+                && !Thread.currentThread().isInterrupted(); query++) {
+            final int index = query % queriesPerRound;
+            if (index == 0) {
+                // The query cache would skip the hot paths:
+                hotelService.getQueryCache().clear();
+                for (String[] sample : WARM_UP_REGEXPS) {
+                    regexpService.highlight(sample[1], sample[0]);
+                }
+            }
+            final GridBuilder<HotelView> builder = builders.get(index / (WARM_UP_PATTERNS.length * 2));
+            final String pattern = WARM_UP_PATTERNS[(index >> 1) % WARM_UP_PATTERNS.length];
+            final boolean byName = (index & 1) == 0;
+            hotelService.selectHotels(builder, 15, byName ? pattern : "", byName ? "" : pattern).count();
+        }
+        hotelService.getQueryCache().clear();
+        warmedUp = true;
+        LOGGER.log(Level.INFO, "Warm-up finished by {0} queries in {1} ms", new Object[]{
+                query, System.currentTimeMillis() - start});
+    }
+
+    /** Grids of all sortable columns and directions */
+    @NotNull
+    private static List<GridBuilder<HotelView>> warmUpGrids() {
+        final List<GridBuilder<HotelView>> result = new ArrayList<>();
+        for (HotelColumn column : HotelColumn.values()) {
+            for (Direction direction : new Direction[]{Direction.ASC, Direction.DESC}) {
+                result.add(new WarmUpGrid(column, direction));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The snapshot file in a private directory of the user home,
+     * the directory is accessible by its owner only.
+     * @return The {@code null} value if the private directory is not available.
+     */
+    @Nullable
+    private static Path defaultSnapshotFile() {
+        final Path directory = Paths.get(System.getProperty("user.home"), SNAPSHOT_DIR);
+        try {
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                final EnumSet<PosixFilePermission> ownerOnly = EnumSet.of(
+                        PosixFilePermission.OWNER_READ,
+                        PosixFilePermission.OWNER_WRITE,
+                        PosixFilePermission.OWNER_EXECUTE);
+                if (!Files.isDirectory(directory)) {
+                    Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(ownerOnly));
+                }
+                // Fails for a directory of another user:
+                Files.setPosixFilePermissions(directory, ownerOnly);
+            } else {
+                Files.createDirectories(directory);
+            }
+            return directory.resolve("snapshot.bin");
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Binary snapshot is disabled, no private directory: " + directory, e);
+            return null;
+        }
+    }
+
+    /** URL of a data file from the directory or from the classpath */
+    @NotNull
+    private static URL dataUrl(@Nullable Path directory, @NotNull String resource) {
+        try {
+            return directory != null
+                    ? directory.resolve(fileName(resource)).toUri().toURL()
+                    : DataRegistry.class.getResource(resource);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(resource, e);
+        }
+    }
+
+    /** Directory of an URL for the file protocol, or {@code null} */
+    @Nullable
+    private static Path fileDirectory(@Nullable URL url) {
+        try {
+            return url != null && "file".equals(url.getProtocol())
+                    ? Paths.get(url.toURI()).getParent()
+                    : null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /** A simple file name of the resource */
+    @NotNull
+    private static String fileName(@NotNull String resource) {
+        return resource.substring(resource.lastIndexOf('/') + 1);
+    }
+
+    /** A grid sorted by a hotel column */
+    private static final class WarmUpGrid extends GridBuilder<HotelView> {
+        WarmUpGrid(HotelColumn column, Direction direction) {
+            super("Warm-up");
+            add(column).sortable(direction);
+            setSort(getColumn(0));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.ponec.demo.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Watches data files of a directory and calls a reload action in its own thread
+ * after a change, so the reload never runs on a request path.
+ *
+ * @author Pavel Ponec
+ */
+public class DataWatcher implements Closeable {
+
+    /** Logger */
+    private static final Logger LOGGER = Logger.getLogger(DataWatcher.class.getName());
+    /** Delay to collect more events of one file update */
+    private static final long DEBOUNCE_MILLIS = 300L;
+
+    private final Path directory;
+    private final Set<String> fileNames;
+    private final Runnable reloadAction;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    protected DataWatcher(
+            @NotNull Path directory,
+            @NotNull Collection<String> fileNames,
+            @NotNull Runnable reloadAction) throws IOException {
+        this.directory = directory;
+        this.fileNames = new HashSet<>(fileNames);
+        this.reloadAction = reloadAction;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "data-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /** Watch events until the watcher is closed */
+    protected void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                while (key != null) {
+                    changed |= isDataEvent(key);
+                    key.reset();
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.log(Level.FINE, "Watching of {0} is finished", directory);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Data watching fails", e);
+        }
+    }
+
+    /** Run the reload action, a failure is logged and the watching continues */
+    private void reload() {
+        try {
+            reloadAction.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Data reloading fails, the watching continues", e);
+        }
+    }
+
+    /** Does the key contain an event of a data file? */
+    private boolean isDataEvent(@NotNull WatchKey key) {
+        boolean result = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            final Object context = event.context();
+            result |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                   || context instanceof Path && fileNames.contains(context.toString());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+
+    /**
+     * Start watching of data files in a directory.
+     * @param directory A directory of files
+     * @param fileNames Simple names of data files
+     * @param reloadAction An action to reload data
+     */
+    @NotNull
+    public static DataWatcher start(
+            @NotNull Path directory,
+            @NotNull Collection<String> fileNames,
+            @NotNull Runnable reloadAction) throws IOException {
+        final DataWatcher result = new DataWatcher(directory, fileNames, reloadAction);
+        result.thread.start();
+        LOGGER.log(Level.INFO, "Watching data files {0} in {1}", new Object[]{fileNames, directory});
+        return result;
+    }
+}
@@ -0,0 +1,138 @@
+package net.ponec.demo.service;
+
+import java.util.function.IntUnaryOperator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Rows of each value of one facet, precomputed with the snapshot.
+ * A frequent value holds a bitmap of rows, a rare value holds a sorted row list,
+ * so the memory is bounded by a few bytes per row.
+ * Counts of a selection are computed by an intersection with the bitmap of the selected rows,
+ * or by a scan of the selected rows, if they are fewer.
+ *
+ * @author Pavel Ponec
+ */
+public final class FacetIndex {
+
+    /** A value with more rows than the size divided by the ratio has a bitmap */
+    private static final int DENSE_RATIO = 32;
+
+    /** Value index of each row */
+    private final int[] values;
+    /** Labels of values */
+    private final String[] labels;
+    /** Row count of each value */
+    private final int[] totals;
+    /** Bitmap words of a frequent value or {@code null} */
+    private final long[][] bitmaps;
+    /** Ascending rows of a rare value or {@code null} */
+    private final int[][] rows;
+    /** Cost of the intersection in visited words and rows */
+    private final long intersectionCost;
+
+    /**
+     * Create the index.
+     * @param size Row count
+     * @param valueOf Value index of a row in the range of the labels
+     * @param labels Labels of values
+     */
+    public FacetIndex(int size, @NotNull IntUnaryOperator valueOf, @NotNull String[] labels) {
+        this.values = new int[size];
+        this.labels = labels;
+        this.totals = new int[labels.length];
+        for (int row = 0; row < size; row++) {
+            values[row] = valueOf.applyAsInt(row);
+            totals[values[row]]++;
+        }
+        this.bitmaps = new long[labels.length][];
+        this.rows = new int[labels.length][];
+        long cost = 0L;
+        for (int value = 0; value < labels.length; value++) {
+            if ((long) totals[value] * DENSE_RATIO > size) {
+                bitmaps[value] = new long[words(size)];
+                cost += bitmaps[value].length;
+            } else {
+                rows[value] = new int[totals[value]];
+                cost += totals[value];
+            }
+        }
+        this.intersectionCost = cost;
+        final int[] counts = new int[labels.length];
+        for (int row = 0; row < size; row++) {
+            final int value = values[row];
+            if (bitmaps[value] != null) {
+                bitmaps[value][row >>> 6] |= 1L << row;
+            } else {
+                rows[value][counts[value]++] = row;
+            }
+        }
+    }
+
+    /** Count of values */
+    public int size() {
+        return labels.length;
+    }
+
+    /** Label of the value */
+    @NotNull
+    public String getLabel(int value) {
+        return labels[value];
+    }
+
+    /**
+     * Row count of each value in the selection.
+     * @param selection Ascending rows of the selection or {@code null} for all rows
+     * @param bitmap Bitmap words of the same selection or {@code null}, see the {@link #bitmap(int[], int)}
+     */
+    @NotNull
+    public int[] count(@Nullable int[] selection, @Nullable long[] bitmap) {
+        if (selection == null) {
+            return totals.clone();
+        }
+        final int[] result = new int[labels.length];
+        if (bitmap == null || selection.length <= intersectionCost) {
+            for (int row : selection) {
+                result[values[row]]++;
+            }
+        } else {
+            for (int value = 0; value < labels.length; value++) {
+                int count = 0;
+                if (bitmaps[value] != null) {
+                    final long[] words = bitmaps[value];
+                    for (int i = 0; i < words.length; i++) {
+                        count += Long.bitCount(words[i] & bitmap[i]);
+                    }
+                } else {
+                    for (int row : rows[value]) {
+                        if ((bitmap[row >>> 6] & (1L << row)) != 0L) {
+                            count++;
+                        }
+                    }
+                }
+                result[value] = count;
+            }
+        }
+        return result;
+    }
+
+    /** Bitmap words of ascending rows */
+    @NotNull
+    public static long[] bitmap(@NotNull int[] selection, int size) {
+        final long[] result = new long[words(size)];
+        for (int row : selection) {
+            result[row >>> 6] |= 1L << row;
+        }
+        return result;
+    }
+
+    /** Count of bitmap words for the row count */
+    private static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetIndex{values=" + labels.length + ", cost=" + intersectionCost + '}';
+    }
+}
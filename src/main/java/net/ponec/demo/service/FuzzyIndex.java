@@ -0,0 +1,318 @@
+package net.ponec.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A typo-tolerant index of words for a fuzzy search.
+ * Distinct words of the keys are nodes of a BK-tree by the Levenshtein distance,
+ * so a search visits only subtrees that can contain a word in the max distance
+ * and the cost depends on the word dictionary instead of the row count.
+ * Each word has a posting list of ascending rows.
+ *
+ * @author Pavel Ponec
+ */
+public final class FuzzyIndex {
+
+    /** Separator of words */
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    /** No row found */
+    private static final int[][] NO_ROWS = new int[0][];
+    /** The missing node */
+    private static final int NONE = -1;
+
+    /** Distinct words, the index is a node of the tree and the first one is the root */
+    private final char[][] words;
+    /** Ascending rows of each word */
+    private final int[][] postings;
+    /** Distance of the node to its parent */
+    private final int[] edges;
+    /** The first child of the node */
+    private final int[] firstChildren;
+    /** The next sibling of the node */
+    private final int[] nextSiblings;
+
+    /**
+     * An index of words, the tree is built or it is taken from a stored index.
+     * @param tree Links of the {@link #tree()} or {@code null} to build them
+     */
+    private FuzzyIndex(@NotNull char[][] words, @NotNull int[][] postings, @Nullable int[][] tree) {
+        this.words = words;
+        this.postings = postings;
+        if (tree != null) {
+            this.edges = tree[0];
+            this.firstChildren = tree[1];
+            this.nextSiblings = tree[2];
+        } else {
+            this.edges = new int[words.length];
+            this.firstChildren = new int[words.length];
+            this.nextSiblings = new int[words.length];
+            Arrays.fill(firstChildren, NONE);
+            Arrays.fill(nextSiblings, NONE);
+            for (int node = 1; node < words.length; node++) {
+                insert(node);
+            }
+        }
+    }
+
+    /** Insert the node to the tree */
+    private void insert(int node) {
+        int parent = 0;
+        while (true) {
+            final int distance = distance(words[node], words[parent]);
+            int child = firstChildren[parent];
+            while (child != NONE && edges[child] != distance) {
+                child = nextSiblings[child];
+            }
+            if (child == NONE) {
+                edges[node] = distance;
+                nextSiblings[node] = firstChildren[parent];
+                firstChildren[parent] = node;
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * Search rows whose words are similar to all words of the query.
+     * The distance of a row is a sum of the least distances of query words,
+     * the max distance of a query word depends on its length, see the {@link #maxDistance(int)}.
+     * @param query A normalized query
+     * @return Ascending rows grouped by the distance, the array index is the distance.
+     */
+    @NotNull
+    public int[][] search(@NotNull String query) {
+        final Set<String> queryWords = new LinkedHashSet<>(Arrays.asList(WORD_SEPARATOR.split(query)));
+        queryWords.remove("");
+        if (queryWords.isEmpty() || words.length == 0) {
+            return NO_ROWS;
+        }
+        int[] rows = null;
+        int[] distances = null;
+        for (String queryWord : queryWords) {
+            final long[] matches = matches(queryWord.toCharArray());
+            if (rows == null) {
+                rows = new int[matches.length];
+                distances = new int[matches.length];
+                for (int i = 0; i < matches.length; i++) {
+                    rows[i] = (int) (matches[i] >>> 32);
+                    distances[i] = (int) matches[i];
+                }
+            } else {
+                int size = 0;
+                for (int i = 0, j = 0; i < rows.length && j < matches.length; ) {
+                    final int row = (int) (matches[j] >>> 32);
+                    if (rows[i] < row) {
+                        i++;
+                    } else if (rows[i] > row) {
+                        j++;
+                    } else {
+                        rows[size] = row;
+                        distances[size++] = distances[i++] + (int) matches[j++];
+                    }
+                }
+                rows = Arrays.copyOf(rows, size);
+                distances = Arrays.copyOf(distances, size);
+            }
+            if (rows.length == 0) {
+                return NO_ROWS;
+            }
+        }
+        return groupByDistance(rows, distances);
+    }
+
+    /**
+     * Rows containing a similar word.
+     * @return Ascending rows with the least distance, a row is in the high 32 bits and the distance in the low ones.
+     */
+    @NotNull
+    private long[] matches(@NotNull char[] queryWord) {
+        final int max = maxDistance(queryWord.length);
+        final List<long[]> result = new ArrayList<>();
+        int size = 0;
+        final int[] stack = new int[words.length];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            final int node = stack[--top];
+            final int distance = distance(queryWord, words[node]);
+            if (distance <= max) {
+                final long[] hits = new long[postings[node].length];
+                for (int i = 0; i < hits.length; i++) {
+                    hits[i] = ((long) postings[node][i] << 32) | distance;
+                }
+                result.add(hits);
+                size += hits.length;
+            }
+            for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+                if (Math.abs(edges[child] - distance) <= max) {
+                    stack[top++] = child;
+                }
+            }
+        }
+        if (result.size() == 1) {
+            return result.get(0);
+        }
+        // Sort by rows and then by distances, the first item of each row is the least one:
+        final long[] sorted = new long[size];
+        int i = 0;
+        for (long[] hits : result) {
+            System.arraycopy(hits, 0, sorted, i, hits.length);
+            i += hits.length;
+        }
+        if (sorted.length < ParallelRows.PARALLEL_THRESHOLD) {
+            Arrays.sort(sorted);
+        } else {
+            Arrays.parallelSort(sorted);
+        }
+        int unique = 0;
+        for (int j = 0; j < sorted.length; j++) {
+            if (unique == 0 || (sorted[unique - 1] >>> 32) != (sorted[j] >>> 32)) {
+                sorted[unique++] = sorted[j];
+            }
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+
+    /** Group ascending rows by their distances */
+    @NotNull
+    private static int[][] groupByDistance(@NotNull int[] rows, @NotNull int[] distances) {
+        final int[] counts = new int[Arrays.stream(distances).max().orElse(0) + 1];
+        for (int distance : distances) {
+            counts[distance]++;
+        }
+        final int[][] result = new int[counts.length][];
+        for (int distance = 0; distance < counts.length; distance++) {
+            result[distance] = new int[counts[distance]];
+            counts[distance] = 0;
+        }
+        for (int i = 0; i < rows.length; i++) {
+            result[distances[i]][counts[distances[i]]++] = rows[i];
+        }
+        return result;
+    }
+
+    /** Max edit distance of a query word: zero for two chars, one for five chars and two for longer words */
+    static int maxDistance(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /** The Levenshtein distance of two words */
+    static int distance(@NotNull char[] word1, @NotNull char[] word2) {
+        int[] previous = new int[word2.length + 1];
+        int[] current = new int[word2.length + 1];
+        for (int j = 0; j <= word2.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= word1.length; i++) {
+            current[0] = i;
+            for (int j = 1; j <= word2.length; j++) {
+                final int cost = word1[i - 1] == word2[j - 1] ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[word2.length];
+    }
+
+    /** Distinct words, the index is a node of the tree, the array is not copied */
+    @NotNull
+    char[][] words() {
+        return words;
+    }
+
+    /** Ascending rows of each word, the arrays are not copied */
+    @NotNull
+    int[][] postings() {
+        return postings;
+    }
+
+    /** Links of the tree: the edge distances, the first children and the next siblings of nodes */
+    @NotNull
+    int[][] tree() {
+        return new int[][]{edges, firstChildren, nextSiblings};
+    }
+
+    /**
+     * Build an index of normalized keys where the array index is the row number.
+     * @param keys Normalized keys, the {@code null} value is ignored.
+     */
+    @NotNull
+    public static FuzzyIndex of(@NotNull String[] keys) {
+        final Map<String, Integer> wordIndexes = new HashMap<>();
+        final List<int[]> postings = new ArrayList<>();
+        int[] sizes = new int[16];
+        for (int row = 0; row < keys.length; row++) {
+            if (keys[row] == null) {
+                continue;
+            }
+            for (String word : WORD_SEPARATOR.split(keys[row])) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                Integer index = wordIndexes.get(word);
+                if (index == null) {
+                    index = wordIndexes.size();
+                    wordIndexes.put(word, index);
+                    postings.add(new int[4]);
+                    if (index == sizes.length) {
+                        sizes = Arrays.copyOf(sizes, index << 1);
+                    }
+                }
+                final int size = sizes[index];
+                int[] rows = postings.get(index);
+                if (size > 0 && rows[size - 1] == row) {
+                    continue;
+                }
+                if (size == rows.length) {
+                    rows = Arrays.copyOf(rows, size << 1);
+                    postings.set(index, rows);
+                }
+                rows[size] = row;
+                sizes[index] = size + 1;
+            }
+        }
+        final char[][] words = new char[wordIndexes.size()][];
+        final int[][] rows = new int[words.length][];
+        for (Map.Entry<String, Integer> entry : wordIndexes.entrySet()) {
+            final int index = entry.getValue();
+            words[index] = entry.getKey().toCharArray();
+            rows[index] = Arrays.copyOf(postings.get(index), sizes[index]);
+        }
+        return new FuzzyIndex(words, rows, null);
+    }
+
+    /**
+     * An index of a stored one, so no edit distance is computed.
+     * @param words Distinct words, see the {@link #words()}
+     * @param postings Ascending rows of each word, see the {@link #postings()}
+     * @param tree Links of the tree, see the {@link #tree()}
+     */
+    @NotNull
+    static FuzzyIndex of(@NotNull char[][] words, @NotNull int[][] postings, @NotNull int[][] tree) {
+        if (postings.length != words.length
+                || tree.length != 3
+                || tree[0].length != words.length
+                || tree[1].length != words.length
+                || tree[2].length != words.length) {
+            throw new IllegalArgumentException("The tree doesn't match the words");
+        }
+        return new FuzzyIndex(words, postings, tree);
+    }
+
+    @Override
+    public String toString() {
+        return "FuzzyIndex{words=" + words.length + '}';
+    }
+}
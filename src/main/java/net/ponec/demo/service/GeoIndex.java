@@ -0,0 +1,275 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A spatial index of hotel rows by the location of their city.
+ * Locations are points of a unit sphere in the 3D space, where a chord distance has the same order
+ * as the great-circle distance, so the implicit k-d tree can select the nearest rows exactly
+ * without a haversine distance of each row.
+ * Rows without any location are not indexed.
+ *
+ * @author Pavel Ponec
+ */
+public final class GeoIndex {
+
+    /** Mean radius of the Earth in kilometers */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    /** Count of coordinates */
+    private static final int DIMENSIONS = 3;
+
+    /** Coordinates of rows in the order x, y, z */
+    private final float[] points;
+    /** Rows of the implicit k-d tree, the median of each range is a node */
+    private final int[] nodes;
+
+    private GeoIndex(@NotNull float[] points, @NotNull int[] nodes) {
+        this.points = points;
+        this.nodes = nodes;
+        build(0, nodes.length, 0);
+    }
+
+    /** Count of indexed rows */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * The nearest rows ordered by the distance, equal distances are ordered by the row.
+     * @param latitude Latitude of the point in degrees
+     * @param longitude Longitude of the point in degrees
+     * @param count Max count of rows
+     * @param maxDistanceKm Max distance in kilometers
+     * @param filter An optional filter of rows
+     */
+    @NotNull
+    public int[] nearest(double latitude, double longitude, int count, double maxDistanceKm,
+            @Nullable IntPredicate filter) {
+        if (count <= 0 || nodes.length == 0 || !(maxDistanceKm >= 0.0)) {
+            return new int[0];
+        }
+        final double[] query = toPoint(latitude, longitude);
+        final double maxChord = 2.0 * Math.sin(Math.min(maxDistanceKm / EARTH_RADIUS_KM, Math.PI) / 2.0);
+        final Nearest nearest = new Nearest(Math.min(count, nodes.length), maxChord * maxChord);
+        search(0, nodes.length, 0, query, filter, nearest);
+        return nearest.toRows();
+    }
+
+    /** Search a range of the tree */
+    private void search(int lo, int hi, int axis, double[] query, IntPredicate filter, Nearest nearest) {
+        while (lo < hi) {
+            final int middle = (lo + hi) >>> 1;
+            final int row = nodes[middle];
+            if (filter == null || filter.test(row)) {
+                nearest.offer(row, distance2(row, query));
+            }
+            final double diff = query[axis] - points[row * DIMENSIONS + axis];
+            final int nextAxis = (axis + 1) % DIMENSIONS;
+            if (diff < 0.0) {
+                search(lo, middle, nextAxis, query, filter, nearest);
+                if (diff * diff > nearest.bound()) {
+                    return;
+                }
+                lo = middle + 1;
+            } else {
+                search(middle + 1, hi, nextAxis, query, filter, nearest);
+                if (diff * diff > nearest.bound()) {
+                    return;
+                }
+                hi = middle;
+            }
+            axis = nextAxis;
+        }
+    }
+
+    /** Squared chord distance of the row to the point */
+    private double distance2(int row, double[] query) {
+        final int i = row * DIMENSIONS;
+        final double dx = points[i] - query[0];
+        final double dy = points[i + 1] - query[1];
+        final double dz = points[i + 2] - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /** Build a range of the tree */
+    private void build(int lo, int hi, int axis) {
+        while (hi - lo > 1) {
+            final int middle = (lo + hi) >>> 1;
+            select(lo, hi, middle, axis);
+            build(lo, middle, (axis + 1) % DIMENSIONS);
+            lo = middle + 1;
+            axis = (axis + 1) % DIMENSIONS;
+        }
+    }
+
+    /** Move the k-th node of the range to its sorted position by a three-way quickselect */
+    private void select(int lo, int hi, int k, int axis) {
+        while (hi - lo > 1) {
+            final float pivot = points[nodes[(lo + hi) >>> 1] * DIMENSIONS + axis];
+            int lower = lo;
+            int i = lo;
+            int upper = hi;
+            while (i < upper) {
+                final float value = points[nodes[i] * DIMENSIONS + axis];
+                if (value < pivot) {
+                    swap(lower++, i++);
+                } else if (value > pivot) {
+                    swap(i, --upper);
+                } else {
+                    i++;
+                }
+            }
+            if (k < lower) {
+                hi = lower;
+            } else if (k >= upper) {
+                lo = upper;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        final int node = nodes[i];
+        nodes[i] = nodes[j];
+        nodes[j] = node;
+    }
+
+    /**
+     * A great-circle distance by the haversine formula.
+     * @return Distance in kilometers
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        final double dLatitude = Math.toRadians(latitude2 - latitude1);
+        final double dLongitude = Math.toRadians(longitude2 - longitude1);
+        final double a = Math.pow(Math.sin(dLatitude / 2.0), 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.pow(Math.sin(dLongitude / 2.0), 2);
+        return 2.0 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /** A point of the unit sphere */
+    @NotNull
+    private static double[] toPoint(double latitude, double longitude) {
+        final double lat = Math.toRadians(latitude);
+        final double lon = Math.toRadians(longitude);
+        return new double[]{
+            Math.cos(lat) * Math.cos(lon),
+            Math.cos(lat) * Math.sin(lon),
+            Math.sin(lat)};
+    }
+
+    /** Create an index of rows with a city location */
+    @NotNull
+    public static GeoIndex of(@NotNull HotelTable table) {
+        final float[] points = new float[table.size() * DIMENSIONS];
+        final int[] nodes = new int[table.size()];
+        int size = 0;
+        for (int row = 0; row < table.size(); row++) {
+            final City city = table.getCity(row);
+            if (city.getLatitude() != null && city.getLongitude() != null) {
+                final double[] point = toPoint(city.getLatitude(), city.getLongitude());
+                for (int i = 0; i < DIMENSIONS; i++) {
+                    points[row * DIMENSIONS + i] = (float) point[i];
+                }
+                nodes[size++] = row;
+            }
+        }
+        return new GeoIndex(points, Arrays.copyOf(nodes, size));
+    }
+
+    /** A bounded max-heap of the nearest rows */
+    private static final class Nearest {
+        private final int[] rows;
+        private final double[] distances;
+        /** Squared max distance */
+        private final double maxDistance;
+        private int size;
+
+        Nearest(int capacity, double maxDistance) {
+            this.rows = new int[capacity];
+            this.distances = new double[capacity];
+            this.maxDistance = maxDistance;
+        }
+
+        /** Squared distance of the worst accepted row */
+        double bound() {
+            return size < rows.length ? maxDistance : distances[0];
+        }
+
+        void offer(int row, double distance) {
+            if (distance > maxDistance) {
+                return;
+            }
+            if (size < rows.length) {
+                rows[size] = row;
+                distances[size] = distance;
+                up(size++);
+            } else if (isLess(row, distance, 0)) {
+                rows[0] = row;
+                distances[0] = distance;
+                down(0);
+            }
+        }
+
+        /** Is the row nearer than the row of the index? */
+        private boolean isLess(int row, double distance, int index) {
+            return distance < distances[index] || (distance == distances[index] && row < rows[index]);
+        }
+
+        private void up(int index) {
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (!isLess(rows[parent], distances[parent], index)) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void down(int index) {
+            while (true) {
+                final int left = 2 * index + 1;
+                if (left >= size) {
+                    return;
+                }
+                int child = left;
+                if (left + 1 < size && isLess(rows[left], distances[left], left + 1)) {
+                    child = left + 1;
+                }
+                if (!isLess(rows[index], distances[index], child)) {
+                    return;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            final int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+            final double distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+
+        /** Rows ordered by the distance */
+        int[] toRows() {
+            final int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = rows[0];
+                rows[0] = rows[size - 1];
+                distances[0] = distances[size - 1];
+                size--;
+                down(0);
+            }
+            return result;
+        }
+    }
+}
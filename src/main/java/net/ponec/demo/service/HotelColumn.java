@@ -0,0 +1,149 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.HotelView;
+import java.util.Comparator;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.ujorm.tools.web.Element;
+import org.ujorm.tools.web.ao.Column;
+
+/**
+ * Sortable hotel columns of reports.
+ * The hotel snapshot holds a precomputed order of rows for each column.
+ *
+ * @author Pavel Ponec
+ */
+public enum HotelColumn implements Function<HotelView, Object> {
+    NAME(HotelView::getName),
+    CITY(HotelView::getCityName),
+    STREET(HotelView::getStreet),
+    PRICE(HotelView::getPrice),
+    STARS(HotelView::getStars);
+
+    /** Value of the column */
+    private final Function<HotelView, ?> getter;
+    /** Ascending comparator of hotels */
+    private final Comparator<HotelView> comparator = this::compare;
+
+    HotelColumn(Function<HotelView, ?> getter) {
+        this.getter = getter;
+    }
+
+    @Override
+    public Object apply(HotelView hotel) {
+        return getter.apply(hotel);
+    }
+
+    /** Ascending comparator of hotels */
+    @NotNull
+    public Comparator<HotelView> getComparator() {
+        return comparator;
+    }
+
+    /** Compare two hotels by the column, the {@code null} value is the first one */
+    public int compare(@NotNull HotelView hotel1, @NotNull HotelView hotel2) {
+        switch (this) {
+            case NAME:
+                return compareNullable(hotel1.getName(), hotel2.getName());
+            case CITY:
+                return compareNullable(hotel1.getCityName(), hotel2.getCityName());
+            case STREET:
+                return compareNullable(hotel1.getStreet(), hotel2.getStreet());
+            case PRICE:
+                return compareNullable(hotel1.getPrice(), hotel2.getPrice());
+            case STARS:
+                return compareNullable(hotel1.getStars(), hotel2.getStars());
+            default:
+                throw new IllegalStateException("Unsupported column: " + this);
+        }
+    }
+
+    /**
+     * Compare two rows of the table in the same way as the {@link #getComparator()} compares hotels,
+     * but without any row view.
+     */
+    public int compare(@NotNull HotelTable table, int row1, int row2) {
+        switch (this) {
+            case NAME:
+                return compareNullable(table.getName(row1), table.getName(row2));
+            case CITY:
+                return compareNullable(table.getCityName(row1), table.getCityName(row2));
+            case STREET:
+                return compareNullable(table.getStreet(row1), table.getStreet(row2));
+            case PRICE:
+                return Long.compare(table.getPriceCents(row1), table.getPriceCents(row2));
+            case STARS:
+                return compareStars(table.getStars(row1), table.getStars(row2));
+            default:
+                return compare(table.getRow(row1), table.getRow(row2));
+        }
+    }
+
+    /** Ascending comparator of table rows */
+    @NotNull
+    public Comparator<Integer> getRowComparator(@NotNull HotelTable table) {
+        return (row1, row2) -> compare(table, row1, row2);
+    }
+
+    /** Compare values, the {@code null} value is the first one */
+    private static <T extends Comparable<? super T>> int compareNullable(@Nullable T value1, @Nullable T value2) {
+        if (value1 == null || value2 == null) {
+            return value1 == value2 ? 0 : value1 == null ? -1 : 1;
+        }
+        return value1.compareTo(value2);
+    }
+
+    /** Compare stars, the {@code NaN} value means a missing value, which is the first one */
+    private static int compareStars(float stars1, float stars2) {
+        final boolean missing1 = Float.isNaN(stars1);
+        final boolean missing2 = Float.isNaN(stars2);
+        if (missing1 || missing2) {
+            return missing1 == missing2 ? 0 : missing1 ? -1 : 1;
+        }
+        return Float.compare(stars1, stars2);
+    }
+
+    /** Create a sortable column with a custom HTML writer */
+    @NotNull
+    public Column<HotelView> withWriter(@NotNull BiConsumer<Element, HotelView> writer) {
+        return new Rendered(this, writer);
+    }
+
+    /**
+     * Find a hotel column of a report column function.
+     * @return The {@code null} value for an unknown column.
+     */
+    @Nullable
+    public static HotelColumn of(@Nullable Function<HotelView, ?> column) {
+        if (column instanceof HotelColumn) {
+            return (HotelColumn) column;
+        } else if (column instanceof Rendered) {
+            return ((Rendered) column).column;
+        } else {
+            return null;
+        }
+    }
+
+    /** A hotel column with a custom HTML writer */
+    private static final class Rendered implements Column<HotelView> {
+        private final HotelColumn column;
+        private final BiConsumer<Element, HotelView> writer;
+
+        Rendered(HotelColumn column, BiConsumer<Element, HotelView> writer) {
+            this.column = column;
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(Element e, HotelView hotel) {
+            writer.accept(e, hotel);
+        }
+
+        @Override
+        public Object apply(HotelView hotel) {
+            return column.apply(hotel);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package net.ponec.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Hotel counts of cities, countries and star buckets for one filter.
+ * Each list contains non-zero counts in the descending order.
+ *
+ * @author Pavel Ponec
+ */
+public final class HotelFacets {
+
+    /** Facets without any value */
+    public static final HotelFacets EMPTY = new HotelFacets(0L,
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+    /** Version of the snapshot */
+    private final long version;
+    private final List<Value> cities;
+    private final List<Value> countries;
+    private final List<Value> stars;
+
+    HotelFacets(long version, @NotNull List<Value> cities, @NotNull List<Value> countries, @NotNull List<Value> stars) {
+        this.version = version;
+        this.cities = cities;
+        this.countries = countries;
+        this.stars = stars;
+    }
+
+    /** Version of the snapshot */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Hotel counts per city, labelled by the name and the country */
+    @NotNull
+    public List<Value> getCities() {
+        return cities;
+    }
+
+    /** Hotel counts per country */
+    @NotNull
+    public List<Value> getCountries() {
+        return countries;
+    }
+
+    /** Hotel counts per star bucket */
+    @NotNull
+    public List<Value> getStars() {
+        return stars;
+    }
+
+    /** Non-zero counts of the facet in the descending order, equal counts keep the order of values */
+    @NotNull
+    static List<Value> of(@NotNull FacetIndex facet, @NotNull int[] counts) {
+        final List<Value> result = new ArrayList<>();
+        for (int value = 0; value < counts.length; value++) {
+            if (counts[value] > 0) {
+                result.add(new Value(facet.getLabel(value), counts[value]));
+            }
+        }
+        result.sort(Comparator.comparingInt(Value::getCount).reversed());
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public String toString() {
+        return "HotelFacets{cities=" + cities.size()
+                + ", countries=" + countries.size()
+                + ", stars=" + stars.size() + '}';
+    }
+
+    /** A facet value with its hotel count */
+    public static final class Value {
+        private final String label;
+        private final int count;
+
+        Value(@NotNull String label, int count) {
+            this.label = label;
+            this.count = count;
+        }
+
+        @NotNull
+        public String getLabel() {
+            return label;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return label + " (" + count + ')';
+        }
+    }
+}
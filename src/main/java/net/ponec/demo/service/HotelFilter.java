@@ -0,0 +1,160 @@
+package net.ponec.demo.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable filter of hotels by text patterns and value ranges.
+ * Patterns are normalized, prices are in cents and a range excludes hotels without the value.
+ *
+ * @author Pavel Ponec
+ */
+public final class HotelFilter {
+
+    /** A filter of all hotels */
+    public static final HotelFilter ALL = new HotelFilter("", "", Long.MIN_VALUE, Long.MAX_VALUE, Float.NEGATIVE_INFINITY);
+
+    /** Normalized name pattern */
+    private final String name;
+    /** Normalized city pattern */
+    private final String city;
+    /** Min price in cents, inclusive */
+    private final long minPriceCents;
+    /** Max price in cents, inclusive */
+    private final long maxPriceCents;
+    /** Min stars, inclusive */
+    private final float minStars;
+
+    private HotelFilter(String name, String city, long minPriceCents, long maxPriceCents, float minStars) {
+        this.name = name;
+        this.city = city;
+        this.minPriceCents = minPriceCents;
+        this.maxPriceCents = maxPriceCents;
+        this.minStars = minStars;
+    }
+
+    /** Normalized name pattern */
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /** Normalized city pattern */
+    @NotNull
+    public String getCity() {
+        return city;
+    }
+
+    /** Min price in cents, inclusive */
+    public long getMinPriceCents() {
+        return minPriceCents;
+    }
+
+    /** Max price in cents, inclusive */
+    public long getMaxPriceCents() {
+        return maxPriceCents;
+    }
+
+    /** Min stars, inclusive */
+    public float getMinStars() {
+        return minStars;
+    }
+
+    /** Is any text pattern assigned? */
+    public boolean hasText() {
+        return !name.isEmpty() || !city.isEmpty();
+    }
+
+    /** Is a price range assigned? */
+    public boolean hasPriceRange() {
+        return minPriceCents != Long.MIN_VALUE || maxPriceCents != Long.MAX_VALUE;
+    }
+
+    /** Is a stars range assigned? */
+    public boolean hasStarsRange() {
+        return minStars != Float.NEGATIVE_INFINITY;
+    }
+
+    /** Does the filter accept all hotels? */
+    public boolean isEmpty() {
+        return !hasText() && !hasPriceRange() && !hasStarsRange();
+    }
+
+    /** Does the filter accept a subset of hotels of the previous filter? */
+    public boolean refines(@NotNull HotelFilter previous) {
+        return name.contains(previous.name)
+                && city.contains(previous.city)
+                && minPriceCents >= previous.minPriceCents
+                && maxPriceCents <= previous.maxPriceCents
+                && minStars >= previous.minStars;
+    }
+
+    /** A filter with another name pattern */
+    @NotNull
+    public HotelFilter withName(@Nullable String namePattern) {
+        return new HotelFilter(HotelSnapshot.normalize(namePattern), city, minPriceCents, maxPriceCents, minStars);
+    }
+
+    /** A filter with the price range, a {@code null} value means no bound */
+    @NotNull
+    public HotelFilter withPrice(@Nullable BigDecimal min, @Nullable BigDecimal max) {
+        return new HotelFilter(name, city,
+                min != null ? toCents(min, RoundingMode.CEILING) : Long.MIN_VALUE,
+                max != null ? toCents(max, RoundingMode.FLOOR) : Long.MAX_VALUE,
+                minStars);
+    }
+
+    /** A filter with the min stars, a {@code null} value means no bound */
+    @NotNull
+    public HotelFilter withMinStars(@Nullable Float min) {
+        return new HotelFilter(name, city, minPriceCents, maxPriceCents,
+                min != null ? min : Float.NEGATIVE_INFINITY);
+    }
+
+    /** Price in cents limited to the range of valid prices */
+    private static long toCents(@NotNull BigDecimal price, @NotNull RoundingMode rounding) {
+        final BigDecimal cents = price.movePointRight(2).setScale(0, rounding);
+        return cents.max(BigDecimal.valueOf(HotelTable.NO_PRICE + 1))
+                .min(BigDecimal.valueOf(Long.MAX_VALUE - 1))
+                .longValue();
+    }
+
+    /** A filter by the text patterns */
+    @NotNull
+    public static HotelFilter of(@Nullable String namePattern, @Nullable String cityPattern) {
+        return new HotelFilter(HotelSnapshot.normalize(namePattern), HotelSnapshot.normalize(cityPattern),
+                Long.MIN_VALUE, Long.MAX_VALUE, Float.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HotelFilter)) {
+            return false;
+        }
+        final HotelFilter other = (HotelFilter) obj;
+        return minPriceCents == other.minPriceCents
+                && maxPriceCents == other.maxPriceCents
+                && Float.compare(minStars, other.minStars) == 0
+                && name.equals(other.name)
+                && city.equals(other.city);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, city, minPriceCents, maxPriceCents, minStars);
+    }
+
+    @Override
+    public String toString() {
+        return "HotelFilter{name=" + name
+                + ", city=" + city
+                + ", price=" + minPriceCents + ".." + maxPriceCents
+                + ", minStars=" + minStars + '}';
+    }
+}
@@ -0,0 +1,87 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.HotelView;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One page of the hotel report with cursors of the neighbouring pages.
+ * A page can keep all rows accepted by its filter, so the facet counts don't select them again.
+ *
+ * @author Pavel Ponec
+ */
+public final class HotelPage {
+
+    /** An empty page */
+    public static final HotelPage EMPTY = new HotelPage(Collections.emptyList(), null, null);
+
+    /** Hotels of the page */
+    private final List<HotelView> hotels;
+    /** Cursor of the previous page or {@code null} */
+    private final PageCursor previous;
+    /** Cursor of the next page or {@code null} */
+    private final PageCursor next;
+    /** Snapshot version of the matching rows */
+    private final long version;
+    /** Ascending rows of all hotels accepted by the filter or {@code null} */
+    @Nullable
+    private final int[] matches;
+
+    public HotelPage(@NotNull List<HotelView> hotels, @Nullable PageCursor previous, @Nullable PageCursor next) {
+        this(hotels, previous, next, 0L, null);
+    }
+
+    /**
+     * A page with matching rows of its filter
+     * @param version Snapshot version of the matching rows
+     * @param matches Ascending rows of all hotels accepted by the filter or {@code null}
+     */
+    public HotelPage(@NotNull List<HotelView> hotels,
+            @Nullable PageCursor previous,
+            @Nullable PageCursor next,
+            long version,
+            @Nullable int[] matches) {
+        this.hotels = hotels;
+        this.previous = previous;
+        this.next = next;
+        this.version = version;
+        this.matches = matches;
+    }
+
+    /** Hotels of the page */
+    @NotNull
+    public List<HotelView> getHotels() {
+        return hotels;
+    }
+
+    @NotNull
+    public Stream<HotelView> stream() {
+        return hotels.stream();
+    }
+
+    /** Cursor of the previous page or {@code null} */
+    @Nullable
+    public PageCursor getPrevious() {
+        return previous;
+    }
+
+    /** Cursor of the next page or {@code null} */
+    @Nullable
+    public PageCursor getNext() {
+        return next;
+    }
+
+    /**
+     * Ascending rows of all hotels accepted by the filter of the page.
+     * @param snapshotVersion The current snapshot version
+     * @return The {@code null} value if the page selection didn't need them (e.g. a cached page)
+     * or if the snapshot was replaced.
+     */
+    @Nullable
+    public int[] getMatches(long snapshotVersion) {
+        return snapshotVersion == version ? matches : null;
+    }
+}
@@ -1,16 +1,24 @@
 package net.ponec.demo.service;
 
 import net.ponec.demo.model.Hotel;
+import net.ponec.demo.model.HotelView;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.net.URL;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
-import org.ujorm.tools.common.StreamUtils;
+import org.jetbrains.annotations.Nullable;
+import org.ujorm.tools.web.table.ColumnModel;
+import org.ujorm.tools.web.table.Direction;
 import org.ujorm.tools.web.table.GridBuilder;
 
 /**
@@ -21,54 +29,433 @@ public class HotelService {
 
     /** Logger */
     private static final Logger LOGGER = Logger.getLogger(HotelService.class.toString());
-    private static final String HOTELS_CSV = "/csv/ResourceHotel.csv";
+    /** Classpath resource of hotels */
+    static final String HOTELS_CSV = "/csv/ResourceHotel.csv";
+    /** Max entry count of the query cache */
+    static final int QUERY_CACHE_SIZE = 1_000;
+    /** Time to live of a cached query result */
+    static final Duration QUERY_CACHE_TTL = Duration.ofMinutes(10);
+    /** Max page size of a cached query result */
+    static final int QUERY_CACHE_MAX_LIMIT = 1_000;
 
-    private final CityResourceService cityService = new CityResourceService();
+    private final CityResourceService cityService;
 
-    private List<Hotel> hotels = null;
+    /** URL of the data source */
+    private final URL hotelUrl;
 
-    public Stream<Hotel> getHotels() throws IOException {
-        if (hotels == null) {
-            synchronized (this) {
-                try (Stream<Hotel> hotelSteam = loadHotelStream()) {
-                    hotels = hotelSteam.collect(Collectors.toList());
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Hotel reading fails", e);
-                    return Stream.empty();
-                }
+    /** Snapshot of hotels shared by all requests, the reference is replaced by a reload */
+    private final AtomicReference<HotelSnapshot> snapshot = new AtomicReference<>();
+
+    /** Selected rows by a query, a key contains the snapshot version */
+    private final QueryCache<QueryKey, int[]> queryCache = new QueryCache<>(QUERY_CACHE_SIZE, QUERY_CACHE_TTL);
+
+    /** Facet counts by a filter, a value contains the snapshot version */
+    private final QueryCache<HotelFilter, HotelFacets> facetCache = new QueryCache<>(QUERY_CACHE_SIZE, QUERY_CACHE_TTL);
+
+    public HotelService() {
+        this(new CityResourceService());
+    }
+
+    /** Hotel service with a shared city service */
+    public HotelService(@NotNull CityResourceService cityService) {
+        this(cityService, HotelService.class.getResource(HOTELS_CSV));
+    }
+
+    /** Hotel service with a shared city service and a data source */
+    public HotelService(@NotNull CityResourceService cityService, @NotNull URL hotelUrl) {
+        this.cityService = cityService;
+        this.hotelUrl = hotelUrl;
+    }
+
+    /** URL of the data source */
+    @NotNull
+    public URL getHotelUrl() {
+        return hotelUrl;
+    }
+
+    /** Returns the current hotel snapshot, the first snapshot is loaded lazily */
+    @NotNull
+    public HotelSnapshot getSnapshot() {
+        HotelSnapshot result = snapshot.get();
+        if (result == null) {
+            final HotelSnapshot loaded = loadSnapshot();
+            if (loaded == null) {
+                return HotelSnapshot.EMPTY;
             }
+            result = snapshot.compareAndSet(null, loaded) ? loaded : snapshot.get();
         }
-        return hotels.stream();
+        return result;
+    }
+
+    /** Is a snapshot of hotels loaded? A failed load leaves the empty snapshot only. */
+    public boolean isLoaded() {
+        return snapshot.get() != null;
+    }
+
+    /**
+     * Build a new snapshot off the request path and publish it by an atomic swap.
+     * Running requests keep reading the previous snapshot.
+     * @return The current snapshot, it is the previous one in case of a reading failure.
+     */
+    @NotNull
+    public HotelSnapshot reload() {
+        final HotelSnapshot loaded = loadSnapshot();
+        if (loaded != null) {
+            snapshot.set(loaded);
+            queryCache.clear();
+            facetCache.clear();
+            LOGGER.log(Level.INFO, "Hotels reloaded: {0}", loaded);
+        }
+        return getSnapshot();
+    }
+
+    /** Publish a snapshot loaded by another way */
+    public void publish(@NotNull HotelSnapshot hotels) {
+        snapshot.set(hotels);
+        queryCache.clear();
+        facetCache.clear();
+    }
+
+    /** Cache of query results */
+    @NotNull
+    public QueryCache<?, ?> getQueryCache() {
+        return queryCache;
+    }
+
+    /** Load a new snapshot from the data source or returns {@code null} in case of failure */
+    @Nullable
+    protected HotelSnapshot loadSnapshot() {
+        try {
+            return HotelSnapshot.of(loadTable(hotelUrl));
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Hotel reading fails", e);
+            return null;
+        }
+    }
+
+    public Stream<HotelView> getHotels() throws IOException {
+        return getSnapshot().stream();
     }
 
     /** Direct stream of data source */
     public Stream<Hotel> loadHotelStream() {
         try {
-            return loadHotels(getClass().getResource(HOTELS_CSV));
+            return loadHotels(hotelUrl);
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
     }
 
     /**
-     * Direct stream of data source.
+     * Select hotels from the shared snapshot.
      * @param builder An instance of ReportBuilder to get some more parameters
      * @param limit Row limit
      * @param namePattern A name pattern
      * @param cityPattern a ioty pattern
      * @return
      */
-    public Stream<Hotel> selectHotels(GridBuilder<Hotel> builder,
+    public Stream<HotelView> selectHotels(GridBuilder<HotelView> builder,
             int limit,
             @NotNull String namePattern,
             @NotNull String cityPattern) {
-        final String nameUp = namePattern.toUpperCase();
-        final String cityUp = cityPattern.toUpperCase();
-        return loadHotelStream()
-                .filter(t -> nameUp.isEmpty() || t.getName().toUpperCase().contains(nameUp))
-                .filter(t -> cityUp.isEmpty() || t.getCityName().toUpperCase().contains(cityUp))
-                .sorted(builder.getSortedColumn().getComparator(Hotel::getName))
-                .limit(Math.max(0, limit));
+        return selectHotels(builder, limit, namePattern, cityPattern, null);
+    }
+
+    /**
+     * Select hotels from the shared snapshot.
+     * @param builder An instance of ReportBuilder to get some more parameters
+     * @param limit Row limit
+     * @param namePattern A name pattern
+     * @param cityPattern a city pattern
+     * @param refinement Matching rows of the previous search of the user session
+     * @return
+     */
+    public Stream<HotelView> selectHotels(GridBuilder<HotelView> builder,
+            int limit,
+            @NotNull String namePattern,
+            @NotNull String cityPattern,
+            @Nullable SearchRefinement refinement) {
+        return selectPage(builder, limit, HotelFilter.of(namePattern, cityPattern), refinement, null).stream();
+    }
+
+    /**
+     * Select a page of hotels from the shared snapshot.
+     * A page is located by a keyset cursor, so a deep page costs the same as the first one.
+     * @param builder An instance of ReportBuilder to get some more parameters
+     * @param limit Page size
+     * @param filter A filter of hotels
+     * @param refinement Matching rows of the previous search of the user session
+     * @param cursor A cursor of the required page, the {@code null} value means the first page
+     * @return
+     */
+    @NotNull
+    public HotelPage selectPage(GridBuilder<HotelView> builder,
+            int limit,
+            @NotNull HotelFilter filter,
+            @Nullable SearchRefinement refinement,
+            @Nullable PageCursor cursor) {
+        final ColumnModel<HotelView, ?> sortedColumn = builder.getSortedColumn();
+        final Direction direction = sortedColumn.isSortable()
+                ? sortedColumn.getDirection()
+                : Direction.NONE;
+        final HotelColumn column = direction == Direction.ASC || direction == Direction.DESC
+                ? HotelColumn.of(sortedColumn.getColumn())
+                : HotelColumn.NAME;
+        if (column == null) {
+            final HotelSnapshot snapshot = getSnapshot();
+            final int[] rows = selectRows(snapshot, filter, refinement).toArray();
+            // The top-K collector merges partial results of a parallel stream in the encounter order:
+            final IntStream stream = rows.length < ParallelRows.PARALLEL_THRESHOLD
+                    ? IntStream.of(rows)
+                    : IntStream.of(rows).parallel();
+            return new HotelPage(stream
+                    .mapToObj(snapshot::getHotel)
+                    .collect(TopK.collector(sortedColumn.getComparator(HotelView::getName), limit)),
+                    null, null, snapshot.getVersion(), rows);
+        }
+        return selectPage(column, direction == Direction.DESC, limit, filter, refinement, cursor);
+    }
+
+    /**
+     * Select a page of hotels sorted by a hotel column.
+     * @param column A sorted column
+     * @param descending Descending direction
+     * @param limit Page size
+     * @param filter A filter of hotels
+     * @param refinement Matching rows of the previous search of the user session
+     * @param cursor A cursor of the required page, the {@code null} value means the first page
+     */
+    @NotNull
+    public HotelPage selectPage(
+            @NotNull HotelColumn column,
+            boolean descending,
+            int limit,
+            @NotNull HotelFilter filter,
+            @Nullable SearchRefinement refinement,
+            @Nullable PageCursor cursor) {
+        if (limit <= 0) {
+            return HotelPage.EMPTY;
+        }
+        final HotelSnapshot snapshot = getSnapshot();
+        final PageCursor seek = cursor != null && cursor.isValidFor(snapshot, column, descending)
+                ? cursor
+                : null;
+        final QueryKey key = new QueryKey(snapshot.getVersion(), filter, column, descending, limit,
+                seek != null ? snapshot.position(column, descending, seek.getRow()) : -1,
+                seek != null && !seek.isNext());
+        // Matching rows of the filter, if the selection computes them:
+        final int[][] matches = new int[1][];
+        final int[] rows = limit <= QUERY_CACHE_MAX_LIMIT
+                ? queryCache.computeIfAbsent(key, k -> selectRows(snapshot, k, refinement, matches))
+                : selectRows(snapshot, key, refinement, matches);
+        if (rows.length == 0 && seek != null) {
+            return selectPage(column, descending, limit, filter, refinement, null);
+        }
+
+        // The rows contain one more row to detect a neighbouring page:
+        final boolean more = rows.length > limit;
+        final int from = key.previous && more ? 1 : 0;
+        final int to = from + Math.min(limit, rows.length);
+        final boolean hasPrevious = key.previous ? more : seek != null;
+        final boolean hasNext = key.previous || more;
+        final List<HotelView> hotels = toHotels(snapshot, rows, from, to);
+        return new HotelPage(hotels,
+                hasPrevious && from < to ? PageCursor.previous(snapshot, column, descending, rows[from]) : null,
+                hasNext && from < to ? PageCursor.next(snapshot, column, descending, rows[to - 1]) : null,
+                snapshot.getVersion(),
+                matches[0]);
+    }
+
+    /**
+     * Select hotels with words similar to words of the name pattern, ordered by the edit distance.
+     * Hotels of the same distance keep the sorted order of the report.
+     * Other predicates of the filter are checked for the found rows only.
+     * @param builder An instance of ReportBuilder to get some more parameters
+     * @param limit Max count of hotels
+     * @param filter A filter of hotels, the name pattern is a fuzzy query
+     * @return A page without cursors
+     */
+    @NotNull
+    public HotelPage selectFuzzy(GridBuilder<HotelView> builder, int limit, @NotNull HotelFilter filter) {
+        if (limit <= 0) {
+            return HotelPage.EMPTY;
+        }
+        final HotelSnapshot snapshot = getSnapshot();
+        final ColumnModel<HotelView, ?> sortedColumn = builder.getSortedColumn();
+        final Direction direction = sortedColumn.isSortable()
+                ? sortedColumn.getDirection()
+                : Direction.NONE;
+        final HotelColumn sorted = direction == Direction.ASC || direction == Direction.DESC
+                ? HotelColumn.of(sortedColumn.getColumn())
+                : null;
+        final HotelColumn column = sorted != null ? sorted : HotelColumn.NAME;
+        final boolean descending = sorted != null && direction == Direction.DESC;
+        final HotelFilter others = filter.withName("");
+        final int[] result = new int[limit];
+        int size = 0;
+        for (int[] distanceRows : snapshot.getFuzzyNameIndex().search(filter.getName())) {
+            if (size == limit) {
+                break;
+            }
+            final int[] rows = others.isEmpty()
+                    ? distanceRows
+                    : snapshot.refineRows(distanceRows, others).toArray();
+            final int[] positions = ParallelRows.topKeys(rows,
+                    row -> snapshot.position(column, descending, row),
+                    0, snapshot.size(), limit - size, false);
+            for (int position : positions) {
+                result[size++] = snapshot.rowAt(column, descending, position);
+            }
+        }
+        return new HotelPage(toHotels(snapshot, result, 0, size), null, null);
+    }
+
+    /**
+     * Hotel counts of cities, countries and star buckets for the filter.
+     * The counts come from the facet indexes of the snapshot and they are cached by the filter,
+     * so a next page of the same filter doesn't count them again.
+     * Matching rows of the page are reused, the filter selects rows only if the page doesn't have them.
+     * @param filter A filter of hotels
+     * @param refinement Matching rows of the previous search of the user session
+     * @param page A page of the same filter
+     */
+    @NotNull
+    public HotelFacets selectFacets(
+            @NotNull HotelFilter filter,
+            @Nullable SearchRefinement refinement,
+            @NotNull HotelPage page) {
+        final HotelSnapshot snapshot = getSnapshot();
+        final HotelFacets cached = facetCache.get(filter);
+        if (cached != null && cached.getVersion() == snapshot.getVersion()) {
+            return cached;
+        }
+        final int[] matches = page.getMatches(snapshot.getVersion());
+        final HotelFacets result = snapshot.facets(filter.isEmpty() ? null
+                : matches != null ? matches
+                : selectRows(snapshot, filter, refinement).toArray());
+        facetCache.put(filter, result);
+        return result;
+    }
+
+    /**
+     * Select the nearest hotels to a point ordered by the distance.
+     * The spatial index of the snapshot selects the rows.
+     * @param limit Max count of hotels
+     * @param filter A filter of hotels
+     * @param refinement Matching rows of the previous search of the user session
+     * @param latitude Latitude of the point in degrees
+     * @param longitude Longitude of the point in degrees
+     * @param radiusKm Max distance in kilometers
+     * @return A page without cursors
+     */
+    @NotNull
+    public HotelPage selectNearest(
+            int limit,
+            @NotNull HotelFilter filter,
+            @Nullable SearchRefinement refinement,
+            double latitude,
+            double longitude,
+            double radiusKm) {
+        if (limit <= 0) {
+            return HotelPage.EMPTY;
+        }
+        final HotelSnapshot snapshot = getSnapshot();
+        final BitSet matches;
+        if (filter.isEmpty()) {
+            matches = null;
+        } else {
+            matches = new BitSet(snapshot.size());
+            selectRows(snapshot, filter, refinement).forEach(matches::set);
+        }
+        final int[] rows = snapshot.getGeoIndex().nearest(latitude, longitude, limit, radiusKm,
+                matches != null ? matches::get : null);
+        return new HotelPage(toHotels(snapshot, rows, 0, rows.length), null, null);
+    }
+
+    /** A list of hotels from a range of rows, row views are created by the rendering */
+    @NotNull
+    private static List<HotelView> toHotels(@NotNull HotelSnapshot snapshot, @NotNull int[] rows, int from, int to) {
+        return new AbstractList<HotelView>() {
+            @Override
+            public HotelView get(int index) {
+                return snapshot.getHotel(rows[from + Objects.checkIndex(index, size())]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * Select sorted rows of the snapshot by the query.
+     * The result contains up to {@code limit + 1} rows in the displayed order,
+     * the extra row is the last one for a next page and the first one for a previous page.
+     * Ascending rows accepted by a non-empty filter are stored in the first item of the {@code matches}.
+     */
+    @NotNull
+    private int[] selectRows(
+            @NotNull HotelSnapshot snapshot,
+            @NotNull QueryKey query,
+            @Nullable SearchRefinement refinement,
+            @NotNull int[][] matches) {
+        final int count = query.limit + 1;
+        // Range of positions in the sorted order:
+        final int from = query.previous ? 0 : query.cursor + 1;
+        final int to = query.previous ? query.cursor : snapshot.size();
+        if (query.filter.isEmpty()) {
+            return query.previous
+                    ? snapshot.sortedRows(query.column, query.descending, Math.max(from, to - count), to).toArray()
+                    : snapshot.sortedRows(query.column, query.descending, from, Math.min(to, from + count)).toArray();
+        }
+        final int[] rows = selectRows(snapshot, query.filter, refinement).toArray();
+        matches[0] = rows;
+        if ((long) count * snapshot.size() < (long) rows.length * rows.length) {
+            // Walking the precomputed order is cheaper for many matching rows:
+            final BitSet accepted = new BitSet(snapshot.size());
+            for (int row : rows) {
+                accepted.set(row);
+            }
+            final int[] result = new int[count];
+            int size = 0;
+            if (query.previous) {
+                for (int position = to - 1; position >= from && size < count; position--) {
+                    final int row = snapshot.rowAt(query.column, query.descending, position);
+                    if (accepted.get(row)) {
+                        result[count - ++size] = row;
+                    }
+                }
+                return Arrays.copyOfRange(result, count - size, count);
+            } else {
+                for (int position = from; position < to && size < count; position++) {
+                    final int row = snapshot.rowAt(query.column, query.descending, position);
+                    if (accepted.get(row)) {
+                        result[size++] = row;
+                    }
+                }
+                return Arrays.copyOf(result, size);
+            }
+        } else {
+            // Positions are unique sort keys of rows:
+            final int[] positions = ParallelRows.topKeys(rows,
+                    row -> snapshot.position(query.column, query.descending, row),
+                    from, to, count, query.previous);
+            return IntStream.of(positions)
+                    .map(position -> snapshot.rowAt(query.column, query.descending, position))
+                    .toArray();
+        }
+    }
+
+    /** Ascending rows accepted by the filter, the refinement can narrow the previous search */
+    @NotNull
+    private IntStream selectRows(
+            @NotNull HotelSnapshot snapshot,
+            @NotNull HotelFilter filter,
+            @Nullable SearchRefinement refinement) {
+        return refinement != null
+                ? IntStream.of(refinement.selectRows(snapshot, filter))
+                : snapshot.selectRows(filter);
     }
 
     /**
@@ -84,30 +471,102 @@ public class HotelService {
      * , Hotel.PRICE
      * , Hotel.ACTIVE
      * @return
+     * @see #loadTable(URL)
      */
     protected Stream<Hotel> loadHotels(URL url) throws IOException {
-        return StreamUtils.rowsOfUrl(url)
-                .filter(t -> !t.startsWith("* "))
-                .filter(t -> !t.startsWith("NAME;"))
-                .map(t -> {
-                    Hotel hotel = null;
-                    String[] c = t.split(";");
-                    if (c.length > 8) {
-                        hotel = new Hotel();
-                        hotel.setName(c[0]);
-                        hotel.setNote(c[1]);
-                        hotel.setCity(cityService.getCity(c[2]));
-                        hotel.setStreet(c[3]);
-                        hotel.setPhone(c[4]);
-                        hotel.setStars(Float.parseFloat(c[5]));
-                        hotel.setHomePage(c[6]);
-                        hotel.setPrice(new BigDecimal(c[7]));
-                        hotel.setCurrency("USD");
-                        hotel.setActive(Boolean.parseBoolean(c[8]));
-                    }
-                    return hotel;
-                })
-                .filter(t -> t != null);
+        return CsvReader.of(url, "NAME;").stream(c -> {
+            Hotel hotel = null;
+            if (c.getColumnCount() > 8) {
+                hotel = new Hotel();
+                hotel.setName(c.getString(0));
+                hotel.setNote(c.getString(1));
+                hotel.setCity(cityService.getCity(c.getInt(2)));
+                hotel.setStreet(c.getString(3));
+                hotel.setPhone(c.getString(4));
+                hotel.setStars(c.getFloat(5));
+                hotel.setHomePage(c.getString(6));
+                hotel.setPrice(c.getDecimal(7));
+                hotel.setCurrency("USD");
+                hotel.setActive(c.getBoolean(8));
+            }
+            return hotel;
+        });
+    }
+
+    /**
+     * Read the hotel table straight from the data source, the columns are appended row by row without hotel beans.
+     * The columns are the same as the {@link #loadHotels(URL)} reads.
+     */
+    @NotNull
+    protected HotelTable loadTable(@NotNull URL url) throws IOException {
+        final HotelTable.Builder result = HotelTable.builder();
+        try (CsvReader c = CsvReader.of(url, "NAME;")) {
+            while (c.next()) {
+                if (c.getColumnCount() > 8) {
+                    result.add(HotelTable.NO_ID,
+                            c.getString(0),
+                            c.getString(1),
+                            cityService.getCity(c.getInt(2)),
+                            c.getString(3),
+                            c.getString(4),
+                            c.getFloat(5),
+                            c.getString(6),
+                            c.getDecimal(7),
+                            "USD",
+                            c.getBoolean(8));
+                }
+            }
+        }
+        return result.build();
     }
 
+
+    /** A key of the query cache */
+    private static final class QueryKey {
+        /** Snapshot version, a reload makes all previous keys obsolete */
+        final long version;
+        final HotelFilter filter;
+        final HotelColumn column;
+        final boolean descending;
+        /** Page size */
+        final int limit;
+        /** Position of the cursor row or {@code -1} for the first page */
+        final int cursor;
+        /** A page before the cursor is required */
+        final boolean previous;
+
+        QueryKey(long version, HotelFilter filter, HotelColumn column, boolean descending, int limit,
+                int cursor, boolean previous) {
+            this.version = version;
+            this.filter = filter;
+            this.column = column;
+            this.descending = descending;
+            this.limit = limit;
+            this.cursor = cursor;
+            this.previous = previous;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof QueryKey)) {
+                return false;
+            }
+            final QueryKey other = (QueryKey) obj;
+            return version == other.version
+                    && descending == other.descending
+                    && limit == other.limit
+                    && cursor == other.cursor
+                    && previous == other.previous
+                    && column == other.column
+                    && filter.equals(other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, filter, column, descending, limit, cursor, previous);
+        }
+    }
 }
@@ -0,0 +1,497 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.HotelView;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable and versioned snapshot of all hotels loaded from the data source.
+ * Each snapshot is loaded once and shared by all requests.
+ *
+ * @author Pavel Ponec
+ */
+public final class HotelSnapshot {
+
+    /** Label of a missing facet value */
+    private static final String NO_VALUE_LABEL = "?";
+    /** Labels of star buckets, see the {@link #starsBucket(int)} */
+    private static final String[] STARS_LABELS = {NO_VALUE_LABEL, "0", "1", "2", "3", "4", "5"};
+
+    /** Sequence of snapshot versions */
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+
+    /** An empty snapshot with the version zero */
+    public static final HotelSnapshot EMPTY = new HotelSnapshot(0L, HotelTable.builder().build());
+
+    /** Version of the snapshot, a higher version is a newer one */
+    private final long version;
+    /** Columnar table of hotels */
+    private final HotelTable table;
+    /** Normalized hotel names by the row */
+    private final String[] nameKeys;
+    /** Normalized city names by the row */
+    private final String[] cityKeys;
+    /** Index of hotel names */
+    private final TrigramIndex nameIndex;
+    /** Index of city names */
+    private final TrigramIndex cityIndex;
+    /** Typo-tolerant index of name words */
+    private final FuzzyIndex fuzzyNameIndex;
+    /** Stable order of rows for each hotel column and direction, see the {@link #orderIndex(HotelColumn, boolean)} */
+    private final int[][] orders;
+    /** Position of each row in the related order */
+    private final int[][] positions;
+    /** Spatial index of rows */
+    private final GeoIndex geoIndex;
+    /** Rows of cities */
+    private final FacetIndex cityFacet;
+    /** Rows of countries */
+    private final FacetIndex countryFacet;
+    /** Rows of star buckets */
+    private final FacetIndex starsFacet;
+
+    private HotelSnapshot(long version, @NotNull HotelTable table) {
+        this(version, table, null, null, null, null, null);
+    }
+
+    /**
+     * A snapshot of the table with optional precomputed orders and indexes, a {@code null} value is computed.
+     * @param orders Orders of rows by the {@link #orderIndex(HotelColumn, boolean)}
+     * @param positions Positions of rows in the orders
+     */
+    private HotelSnapshot(long version,
+            @NotNull HotelTable table,
+            @Nullable int[][] orders,
+            @Nullable int[][] positions,
+            @Nullable TrigramIndex nameIndex,
+            @Nullable TrigramIndex cityIndex,
+            @Nullable FuzzyIndex fuzzyNameIndex) {
+        this.version = version;
+        this.table = table;
+        this.nameKeys = new String[table.size()];
+        this.cityKeys = new String[table.size()];
+        // A city name is folded once, rows share its key:
+        final String[] cityKeysByCode = new String[table.getDictionary().size() + 1];
+        for (int row = 0; row < nameKeys.length; row++) {
+            nameKeys[row] = normalize(table.getName(row));
+            final int cityCode = table.getCityNameCode(row) + 1;
+            if (cityKeysByCode[cityCode] == null) {
+                cityKeysByCode[cityCode] = normalize(table.getCityName(row));
+            }
+            cityKeys[row] = cityKeysByCode[cityCode];
+        }
+        this.nameIndex = nameIndex != null ? nameIndex : TrigramIndex.of(nameKeys);
+        this.cityIndex = cityIndex != null ? cityIndex : TrigramIndex.of(cityKeys);
+        this.fuzzyNameIndex = fuzzyNameIndex != null ? fuzzyNameIndex : FuzzyIndex.of(nameKeys);
+        this.orders = orders != null ? orders : sortOrders(table);
+        this.positions = positions != null ? positions : positions(this.orders);
+        this.geoIndex = GeoIndex.of(table);
+        final String[] dictionaryLabels = new String[table.getDictionary().size() + 1];
+        for (int i = 0; i < dictionaryLabels.length; i++) {
+            final String label = table.getDictionary().decode(i - 1);
+            dictionaryLabels[i] = label != null ? label : NO_VALUE_LABEL;
+        }
+        this.cityFacet = cityFacet(table);
+        this.countryFacet = new FacetIndex(table.size(), row -> table.getCountryCode(row) + 1, dictionaryLabels);
+        this.starsFacet = new FacetIndex(table.size(), this::starsBucket, STARS_LABELS);
+    }
+
+    /**
+     * Rows of cities by the city ID, so same-named cities of different countries are counted apart.
+     * A city label contains the name and the country.
+     */
+    @NotNull
+    private static FacetIndex cityFacet(@NotNull HotelTable table) {
+        final Map<Integer, Integer> values = new HashMap<>();
+        final List<String> labels = new ArrayList<>();
+        labels.add(NO_VALUE_LABEL);
+        final int[] rowValues = new int[table.size()];
+        for (int row = 0; row < rowValues.length; row++) {
+            final City city = table.getCity(row);
+            if (city != City.UNKNOWN) {
+                rowValues[row] = values.computeIfAbsent(table.getCityId(row), id -> {
+                    labels.add(city.getName() + ", " + city.getCountry());
+                    return labels.size() - 1;
+                });
+            }
+        }
+        return new FacetIndex(table.size(), row -> rowValues[row], labels.toArray(new String[0]));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /** Spatial index of rows */
+    @NotNull
+    public GeoIndex getGeoIndex() {
+        return geoIndex;
+    }
+
+    /** Index of hotel names */
+    @NotNull
+    TrigramIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /** Index of city names */
+    @NotNull
+    TrigramIndex getCityIndex() {
+        return cityIndex;
+    }
+
+    /** Typo-tolerant index of name words */
+    @NotNull
+    public FuzzyIndex getFuzzyNameIndex() {
+        return fuzzyNameIndex;
+    }
+
+    /** Columnar table of hotels */
+    @NotNull
+    public HotelTable getTable() {
+        return table;
+    }
+
+    /** Unmodifiable list of hotel views */
+    @NotNull
+    public List<HotelView> getHotels() {
+        return table.asList();
+    }
+
+    /** Count of hotels */
+    public int size() {
+        return table.size();
+    }
+
+    /** A hotel view of the row */
+    @NotNull
+    public HotelView getHotel(int row) {
+        return table.getRow(row);
+    }
+
+    /** Stream of all hotel views */
+    @NotNull
+    public Stream<HotelView> stream() {
+        return IntStream.range(0, table.size()).mapToObj(table::getRow);
+    }
+
+    /**
+     * Ascending rows of hotels accepted by the filter.
+     * The trigram indexes and a binary search of the sorted orders narrow the candidate rows,
+     * the smallest candidate set is checked by all predicates of the filter.
+     * @param filter A filter of hotels
+     */
+    @NotNull
+    public IntStream selectRows(@NotNull HotelFilter filter) {
+        final IntPredicate predicate = row -> matches(row, filter);
+        final int[] texts = textCandidates(filter.getName(), filter.getCity());
+        int from = 0;
+        int to = table.size();
+        HotelColumn rangeColumn = null;
+        if (filter.hasPriceRange()) {
+            final long min = Math.max(filter.getMinPriceCents(), HotelTable.NO_PRICE + 1);
+            final long max = filter.getMaxPriceCents();
+            from = firstPosition(HotelColumn.PRICE, row -> table.getPriceCents(row) >= min);
+            to = Math.max(from, firstPosition(HotelColumn.PRICE, row -> table.getPriceCents(row) > max));
+            rangeColumn = HotelColumn.PRICE;
+        }
+        if (filter.hasStarsRange()) {
+            final float min = filter.getMinStars();
+            final int starsFrom = firstPosition(HotelColumn.STARS, row -> table.getStars(row) >= min);
+            if (rangeColumn == null || table.size() - starsFrom < to - from) {
+                from = starsFrom;
+                to = table.size();
+                rangeColumn = HotelColumn.STARS;
+            }
+        }
+        if (texts != null && (rangeColumn == null || texts.length <= to - from)) {
+            return IntStream.of(ParallelRows.filter(texts.length, i -> texts[i], predicate));
+        } else if (rangeColumn != null) {
+            final int[] rows = rangeRows(rangeColumn, from, to);
+            return IntStream.of(ParallelRows.filter(rows.length, i -> rows[i], predicate));
+        } else {
+            return IntStream.of(ParallelRows.filter(table.size(), i -> i, predicate));
+        }
+    }
+
+    /**
+     * Ascending candidate rows of the text patterns from the trigram indexes.
+     * @return The {@code null} value if no pattern is assigned.
+     */
+    @Nullable
+    private int[] textCandidates(@NotNull String namePattern, @NotNull String cityPattern) {
+        final int[] names = namePattern.isEmpty() ? null : nameIndex.candidates(namePattern);
+        final int[] cities = cityPattern.isEmpty() ? null : cityIndex.candidates(cityPattern);
+        if (names != null && cities != null) {
+            return names.length < cities.length
+                    ? TrigramIndex.intersect(names, cities)
+                    : TrigramIndex.intersect(cities, names);
+        }
+        return names != null ? names : cities;
+    }
+
+    /**
+     * The first position of the ascending order, whose row is accepted by a monotonic predicate.
+     * @return The order length if no row is accepted.
+     */
+    private int firstPosition(@NotNull HotelColumn column, @NotNull IntPredicate predicate) {
+        final int[] order = orders[orderIndex(column, false)];
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (predicate.test(order[middle])) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /** Rows of the ascending order between two positions, sorted by a row bitmap */
+    @NotNull
+    private int[] rangeRows(@NotNull HotelColumn column, int from, int to) {
+        final int[] order = orders[orderIndex(column, false)];
+        final BitSet rows = new BitSet(table.size());
+        for (int position = from; position < to; position++) {
+            rows.set(order[position]);
+        }
+        return rows.stream().toArray();
+    }
+
+    /**
+     * Select candidate rows, which are accepted by the filter.
+     * @param candidates Rows of a previous selection in the ascending order
+     * @param filter A filter of hotels
+     */
+    @NotNull
+    public IntStream refineRows(@NotNull int[] candidates, @NotNull HotelFilter filter) {
+        return IntStream.of(ParallelRows.filter(candidates.length, i -> candidates[i],
+                row -> matches(row, filter)));
+    }
+
+    /** Is the row accepted by the filter? A range doesn't accept a missing value. */
+    private boolean matches(int row, @NotNull HotelFilter filter) {
+        if (filter.hasPriceRange()) {
+            final long price = table.getPriceCents(row);
+            if (price == HotelTable.NO_PRICE
+                    || price < filter.getMinPriceCents()
+                    || price > filter.getMaxPriceCents()) {
+                return false;
+            }
+        }
+        if (filter.hasStarsRange() && !(table.getStars(row) >= filter.getMinStars())) {
+            return false;
+        }
+        return nameKeys[row].contains(filter.getName())
+                && cityKeys[row].contains(filter.getCity());
+    }
+
+    /**
+     * Hotel counts of cities, countries and star buckets in the selection.
+     * @param selection Ascending rows of the selection or {@code null} for all rows
+     */
+    @NotNull
+    public HotelFacets facets(@Nullable int[] selection) {
+        final long[] bitmap = selection != null && selection.length > table.size() >>> 6
+                ? FacetIndex.bitmap(selection, table.size())
+                : null;
+        return new HotelFacets(version,
+                HotelFacets.of(cityFacet, cityFacet.count(selection, bitmap)),
+                HotelFacets.of(countryFacet, countryFacet.count(selection, bitmap)),
+                HotelFacets.of(starsFacet, starsFacet.count(selection, bitmap)));
+    }
+
+    /** A star bucket of the row: zero for missing stars, otherwise the whole stars plus one */
+    private int starsBucket(int row) {
+        final float stars = table.getStars(row);
+        return Float.isNaN(stars) ? 0 : 1 + Math.max(0, Math.min(STARS_LABELS.length - 2, (int) stars));
+    }
+
+    /**
+     * All rows sorted by a precomputed order of the column.
+     * Equal values keep the ascending order of rows in both directions,
+     * so the result is the same as a stable sort of rows.
+     * @param column A sorted column
+     * @param descending Descending direction
+     */
+    @NotNull
+    public IntStream sortedRows(@NotNull HotelColumn column, boolean descending) {
+        return Arrays.stream(orders[orderIndex(column, descending)]);
+    }
+
+    /**
+     * Rows of the sorted order between two positions.
+     * @param column A sorted column
+     * @param descending Descending direction
+     * @param from The first position, inclusive
+     * @param to The last position, exclusive
+     */
+    @NotNull
+    public IntStream sortedRows(@NotNull HotelColumn column, boolean descending, int from, int to) {
+        return Arrays.stream(orders[orderIndex(column, descending)], from, to);
+    }
+
+    /**
+     * Position of the row in the sorted order, the position is a unique sort key of the row.
+     * @param column A sorted column
+     * @param descending Descending direction
+     * @param row A row of the table
+     */
+    public int position(@NotNull HotelColumn column, boolean descending, int row) {
+        return positions[orderIndex(column, descending)][row];
+    }
+
+    /** Row at the position of the sorted order */
+    public int rowAt(@NotNull HotelColumn column, boolean descending, int position) {
+        return orders[orderIndex(column, descending)][position];
+    }
+
+    /**
+     * Fold a text to a search key of the "contains" filters:
+     * the Unicode NFD decomposition, a removal of combining marks and a locale-independent case folding.
+     * So the "Brasilia" pattern matches the "Brasília" text.
+     */
+    @NotNull
+    public static String normalize(@Nullable String text) {
+        if (text == null) {
+            return "";
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                return foldUnicode(text);
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /** Fold a text with non-ASCII characters */
+    @NotNull
+    private static String foldUnicode(@NotNull String text) {
+        final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        final StringBuilder result = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            switch (Character.getType(c)) {
+                case Character.NON_SPACING_MARK:
+                case Character.COMBINING_SPACING_MARK:
+                case Character.ENCLOSING_MARK:
+                    break;
+                default:
+                    result.append(c);
+            }
+        }
+        // The upper case maps special letters like "ß" to their full forms:
+        return result.toString().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    /** Create a new snapshot with a next version from the hotel stream, no hotel is kept */
+    @NotNull
+    public static HotelSnapshot of(@NotNull Stream<? extends HotelView> hotels) {
+        final HotelTable.Builder builder = HotelTable.builder();
+        hotels.forEachOrdered(builder::add);
+        return of(builder.build());
+    }
+
+    /** Create a new snapshot with a next version from the table */
+    @NotNull
+    public static HotelSnapshot of(@NotNull HotelTable table) {
+        return new HotelSnapshot(VERSION_SEQUENCE.incrementAndGet(), table);
+    }
+
+    /**
+     * Create a new snapshot with a next version from a table and its indexes, which were computed by a previous snapshot.
+     * The spatial and facet indexes are built by one pass of the table.
+     * @param orders Rows sorted by each column and direction, see the {@link #rowAt(HotelColumn, boolean, int)}
+     * @param positions Positions of rows in the orders, see the {@link #position(HotelColumn, boolean, int)}
+     */
+    @NotNull
+    static HotelSnapshot of(@NotNull HotelTable table,
+            @NotNull int[][] orders,
+            @NotNull int[][] positions,
+            @NotNull TrigramIndex nameIndex,
+            @NotNull TrigramIndex cityIndex,
+            @NotNull FuzzyIndex fuzzyNameIndex) {
+        if (orders.length != orderCount() || positions.length != orderCount()) {
+            throw new IllegalArgumentException("Order count: " + orders.length);
+        }
+        return new HotelSnapshot(VERSION_SEQUENCE.incrementAndGet(), table, orders, positions,
+                nameIndex, cityIndex, fuzzyNameIndex);
+    }
+
+    /** Count of the orders, each hotel column has an ascending and a descending one */
+    static int orderCount() {
+        return HotelColumn.values().length * 2;
+    }
+
+    /** Sort rows of the table by each column and direction */
+    @NotNull
+    private static int[][] sortOrders(@NotNull HotelTable table) {
+        final int[][] result = new int[orderCount()][];
+        for (HotelColumn column : HotelColumn.values()) {
+            final int[] ascending = IntStream.range(0, table.size())
+                    .boxed()
+                    .sorted(column.getRowComparator(table))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            result[orderIndex(column, false)] = ascending;
+            result[orderIndex(column, true)] = descendingOrder(table, ascending, column);
+        }
+        return result;
+    }
+
+    /** Position of each row in the related order */
+    @NotNull
+    private static int[][] positions(@NotNull int[][] orders) {
+        final int[][] result = new int[orders.length][];
+        for (int i = 0; i < orders.length; i++) {
+            result[i] = new int[orders[i].length];
+            for (int position = 0; position < orders[i].length; position++) {
+                result[i][orders[i][position]] = position;
+            }
+        }
+        return result;
+    }
+
+    /** Index of the orders and positions */
+    private static int orderIndex(@NotNull HotelColumn column, boolean descending) {
+        return (column.ordinal() << 1) | (descending ? 1 : 0);
+    }
+
+    /** Reverse groups of equal values of an ascending order, the rows of each group keep their order */
+    @NotNull
+    private static int[] descendingOrder(@NotNull HotelTable table, @NotNull int[] ascending, @NotNull HotelColumn column) {
+        final int[] result = new int[ascending.length];
+        int i = 0;
+        int groupEnd = ascending.length;
+        while (groupEnd > 0) {
+            int groupBegin = groupEnd - 1;
+            while (groupBegin > 0 && column.compare(table, ascending[groupBegin - 1], ascending[groupEnd - 1]) == 0) {
+                groupBegin--;
+            }
+            System.arraycopy(ascending, groupBegin, result, i, groupEnd - groupBegin);
+            i += groupEnd - groupBegin;
+            groupEnd = groupBegin;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "HotelSnapshot{version=" + version + ", size=" + table.size() + '}';
+    }
+}
@@ -0,0 +1,485 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.HotelView;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A columnar (struct-of-arrays) table of hotels with primitive columns.
+ * Low-cardinality text columns are stored as codes of one shared string dictionary.
+ * The report layer reads the table through lightweight row views,
+ * which are created for the rendered rows only.
+ *
+ * @author Pavel Ponec
+ */
+public final class HotelTable {
+
+    /** Value of a missing city ID */
+    public static final int NO_CITY = Integer.MIN_VALUE;
+    /** Value of a missing price */
+    public static final long NO_PRICE = Long.MIN_VALUE;
+    /** Value of a missing hotel ID */
+    public static final long NO_ID = Long.MIN_VALUE;
+
+    /** Logger */
+    private static final Logger LOGGER = Logger.getLogger(HotelTable.class.toString());
+    /** The max absolute price, whose cents fit the {@code long} type */
+    private static final BigDecimal MAX_PRICE = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+
+    /** Hotel IDs or {@code null} if no hotel has an ID */
+    @Nullable
+    private final long[] ids;
+    private final String[] names;
+    private final String[] notes;
+    private final String[] streets;
+    private final String[] phones;
+    private final String[] homePages;
+    /** Shared dictionary of low-cardinality columns */
+    private final StringDictionary dictionary;
+    /** Dictionary codes of currencies */
+    private final int[] currencyCodes;
+    /** Dictionary codes of city names */
+    private final int[] cityNameCodes;
+    /** Dictionary codes of country codes */
+    private final int[] countryCodes;
+    /** City ID of the row */
+    private final int[] cityIds;
+    /** Stars, the {@code NaN} means a missing value */
+    private final float[] stars;
+    /** Price in cents */
+    private final long[] priceCents;
+    /** Active hotels */
+    private final BitSet active;
+    /** Cities by the ID */
+    private final CityIndex cities;
+
+    /** A table of loaded columns, the arrays are not copied */
+    HotelTable(@Nullable long[] ids,
+            @NotNull String[] names,
+            @NotNull String[] notes,
+            @NotNull String[] streets,
+            @NotNull String[] phones,
+            @NotNull String[] homePages,
+            @NotNull StringDictionary dictionary,
+            @NotNull int[] currencyCodes,
+            @NotNull int[] cityNameCodes,
+            @NotNull int[] countryCodes,
+            @NotNull int[] cityIds,
+            @NotNull float[] stars,
+            @NotNull long[] priceCents,
+            @NotNull BitSet active,
+            @NotNull Map<Integer, City> cities) {
+        this.ids = ids;
+        this.names = names;
+        this.notes = notes;
+        this.streets = streets;
+        this.phones = phones;
+        this.homePages = homePages;
+        this.dictionary = dictionary;
+        this.currencyCodes = currencyCodes;
+        this.cityNameCodes = cityNameCodes;
+        this.countryCodes = countryCodes;
+        this.cityIds = cityIds;
+        this.stars = stars;
+        this.priceCents = priceCents;
+        this.active = active;
+        this.cities = CityIndex.of(cities);
+    }
+
+    /** A builder of the table, which appends rows one by one */
+    @NotNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Convert hotels to the table, a price is rounded to cents */
+    @NotNull
+    public static HotelTable of(@NotNull Collection<? extends HotelView> hotels) {
+        final Builder result = builder();
+        hotels.forEach(result::add);
+        return result.build();
+    }
+
+    /** Row count */
+    public int size() {
+        return names.length;
+    }
+
+    @Nullable
+    public String getName(int row) {
+        return names[row];
+    }
+
+    /** Hotel ID or {@link #NO_ID} */
+    public long getId(int row) {
+        return ids != null ? ids[row] : NO_ID;
+    }
+
+    @Nullable
+    public String getNote(int row) {
+        return notes[row];
+    }
+
+    @Nullable
+    public String getStreet(int row) {
+        return streets[row];
+    }
+
+    @Nullable
+    public String getPhone(int row) {
+        return phones[row];
+    }
+
+    @Nullable
+    public String getHomePage(int row) {
+        return homePages[row];
+    }
+
+    public int getCityId(int row) {
+        return cityIds[row];
+    }
+
+    @NotNull
+    public City getCity(int row) {
+        final City result = cityIds[row] != NO_CITY ? cities.get(cityIds[row]) : null;
+        return result != null ? result : City.UNKNOWN;
+    }
+
+    @Nullable
+    public String getCityName(int row) {
+        return dictionary.decode(cityNameCodes[row]);
+    }
+
+    /** Shared dictionary of the currency, city name and country columns and of city strings */
+    @NotNull
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /** Dictionary code of the currency */
+    public int getCurrencyCode(int row) {
+        return currencyCodes[row];
+    }
+
+    /** Cities of the table, their strings are shared by the dictionary */
+    @NotNull
+    public CityIndex getCities() {
+        return cities;
+    }
+
+    /** Dictionary code of the city name */
+    public int getCityNameCode(int row) {
+        return cityNameCodes[row];
+    }
+
+    /** Dictionary code of the country */
+    public int getCountryCode(int row) {
+        return countryCodes[row];
+    }
+
+    /** Stars, the {@code NaN} means a missing value */
+    public float getStars(int row) {
+        return stars[row];
+    }
+
+    /** Price in cents or {@link #NO_PRICE} */
+    public long getPriceCents(int row) {
+        return priceCents[row];
+    }
+
+    public boolean isActive(int row) {
+        return active.get(row);
+    }
+
+    /** A lightweight read-only hotel view of the row */
+    @NotNull
+    public HotelView getRow(int row) {
+        return new Row(row);
+    }
+
+    /** An unmodifiable list of row views */
+    @NotNull
+    public List<HotelView> asList() {
+        return new AbstractList<HotelView>() {
+            @Override
+            public HotelView get(int row) {
+                return getRow(row);
+            }
+
+            @Override
+            public int size() {
+                return HotelTable.this.size();
+            }
+        };
+    }
+
+    /** Price with the minimal scale from cents */
+    @Nullable
+    private static BigDecimal toPrice(long cents) {
+        if (cents == NO_PRICE) {
+            return null;
+        } else if (cents % 100 == 0) {
+            return BigDecimal.valueOf(cents / 100);
+        } else if (cents % 10 == 0) {
+            return BigDecimal.valueOf(cents / 10, 1);
+        } else {
+            return BigDecimal.valueOf(cents, 2);
+        }
+    }
+
+    /** A read-only hotel view of a table row, all accessors read the table columns */
+    private final class Row implements HotelView {
+        private final int row;
+
+        Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Long getId() {
+            return ids != null && ids[row] != NO_ID ? ids[row] : null;
+        }
+
+        @Override
+        public String getName() {
+            return names[row];
+        }
+
+        @Override
+        public String getNote() {
+            return notes[row];
+        }
+
+        @Override
+        public City getCity() {
+            return HotelTable.this.getCity(row);
+        }
+
+        @Override
+        public String getCityName() {
+            return HotelTable.this.getCityName(row);
+        }
+
+        @Override
+        public String getStreet() {
+            return streets[row];
+        }
+
+        @Override
+        public String getPhone() {
+            return phones[row];
+        }
+
+        @Override
+        public Float getStars() {
+            return Float.isNaN(stars[row]) ? null : stars[row];
+        }
+
+        @Override
+        public String getHomePage() {
+            return homePages[row];
+        }
+
+        @Override
+        public BigDecimal getPrice() {
+            return toPrice(priceCents[row]);
+        }
+
+        @Override
+        public String getCurrency() {
+            return dictionary.decode(currencyCodes[row]);
+        }
+
+        @Override
+        public Boolean getActive() {
+            return active.get(row);
+        }
+    }
+
+    /**
+     * A builder of the table, rows are appended straight from a data source without any hotel bean.
+     * Columns grow by doubling, the {@link #build()} trims them.
+     */
+    public static final class Builder {
+        /** Initial row capacity */
+        private static final int CAPACITY = 1_024;
+
+        private int size;
+        @Nullable
+        private long[] ids;
+        private String[] names = new String[CAPACITY];
+        private String[] notes = new String[CAPACITY];
+        private String[] streets = new String[CAPACITY];
+        private String[] phones = new String[CAPACITY];
+        private String[] homePages = new String[CAPACITY];
+        private final StringDictionary dictionary = new StringDictionary();
+        private int[] currencyCodes = new int[CAPACITY];
+        private int[] cityNameCodes = new int[CAPACITY];
+        private int[] countryCodes = new int[CAPACITY];
+        private int[] cityIds = new int[CAPACITY];
+        private float[] stars = new float[CAPACITY];
+        private long[] priceCents = new long[CAPACITY];
+        private final BitSet active = new BitSet();
+        private final Map<Integer, City> cityMap = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /** Append a hotel */
+        @NotNull
+        public Builder add(@NotNull HotelView hotel) {
+            final Long id = hotel.getId();
+            final Float hotelStars = hotel.getStars();
+            return add(id != null ? id : NO_ID,
+                    hotel.getName(),
+                    hotel.getNote(),
+                    hotel.getCity(),
+                    hotel.getStreet(),
+                    hotel.getPhone(),
+                    hotelStars != null ? hotelStars : Float.NaN,
+                    hotel.getHomePage(),
+                    hotel.getPrice(),
+                    hotel.getCurrency(),
+                    Boolean.TRUE.equals(hotel.getActive()));
+        }
+
+        /**
+         * Append a hotel by its values.
+         * A price out of the range of cents is logged and the row gets no price, so one bad row doesn't break the load.
+         * @param id Hotel ID or the {@link #NO_ID}
+         * @param stars Stars, the {@code NaN} means a missing value
+         * @param price A price rounded to cents
+         */
+        @NotNull
+        public Builder add(long id,
+                @Nullable String name,
+                @Nullable String note,
+                @Nullable City city,
+                @Nullable String street,
+                @Nullable String phone,
+                float stars,
+                @Nullable String homePage,
+                @Nullable BigDecimal price,
+                @Nullable String currency,
+                boolean active) {
+            if (size == names.length) {
+                grow();
+            }
+            final int row = size++;
+            if (id != NO_ID) {
+                if (ids == null) {
+                    ids = new long[names.length];
+                    Arrays.fill(ids, NO_ID);
+                }
+                ids[row] = id;
+            } else if (ids != null) {
+                ids[row] = NO_ID;
+            }
+            names[row] = name;
+            notes[row] = note;
+            streets[row] = street;
+            phones[row] = phone;
+            homePages[row] = homePage;
+            currencyCodes[row] = dictionary.encode(currency);
+            // The boxed ID of the city is a map key without a new boxing:
+            final Integer cityId = city != null ? city.getId() : null;
+            cityIds[row] = cityId != null ? cityId : NO_CITY;
+            if (cityId != null && !cityMap.containsKey(cityId)) {
+                cityMap.put(cityId, canonicalCopy(city));
+            }
+            final City rowCity = cityId != null ? cityMap.get(cityId) : City.UNKNOWN;
+            cityNameCodes[row] = dictionary.encode(rowCity.getName());
+            countryCodes[row] = dictionary.encode(rowCity.getCountry());
+            this.stars[row] = stars;
+            priceCents[row] = toCents(price, name);
+            this.active.set(row, active);
+            return this;
+        }
+
+        /** Count of appended rows */
+        public int size() {
+            return size;
+        }
+
+        /** Build the table trimmed to the row count, the builder can't be used anymore */
+        @NotNull
+        public HotelTable build() {
+            return new HotelTable(ids != null ? Arrays.copyOf(ids, size) : null,
+                    Arrays.copyOf(names, size),
+                    Arrays.copyOf(notes, size),
+                    Arrays.copyOf(streets, size),
+                    Arrays.copyOf(phones, size),
+                    Arrays.copyOf(homePages, size),
+                    dictionary,
+                    Arrays.copyOf(currencyCodes, size),
+                    Arrays.copyOf(cityNameCodes, size),
+                    Arrays.copyOf(countryCodes, size),
+                    Arrays.copyOf(cityIds, size),
+                    Arrays.copyOf(stars, size),
+                    Arrays.copyOf(priceCents, size),
+                    active,
+                    cityMap);
+        }
+
+        /** Double the capacity of all columns */
+        private void grow() {
+            final int capacity = names.length << 1;
+            if (ids != null) {
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            names = Arrays.copyOf(names, capacity);
+            notes = Arrays.copyOf(notes, capacity);
+            streets = Arrays.copyOf(streets, capacity);
+            phones = Arrays.copyOf(phones, capacity);
+            homePages = Arrays.copyOf(homePages, capacity);
+            currencyCodes = Arrays.copyOf(currencyCodes, capacity);
+            cityNameCodes = Arrays.copyOf(cityNameCodes, capacity);
+            countryCodes = Arrays.copyOf(countryCodes, capacity);
+            cityIds = Arrays.copyOf(cityIds, capacity);
+            stars = Arrays.copyOf(stars, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+        }
+
+        /**
+         * A copy of the city with shared instances of its strings.
+         * The original city belongs to the city service and it is visible to other threads, so it is not modified.
+         */
+        @NotNull
+        private City canonicalCopy(@NotNull City city) {
+            final City result = new City();
+            result.setId(city.getId());
+            result.setName(dictionary.canonical(city.getName()));
+            result.setCountry(dictionary.canonical(city.getCountry()));
+            result.setCountryName(dictionary.canonical(city.getCountryName()));
+            result.setLatitude(city.getLatitude());
+            result.setLongitude(city.getLongitude());
+            return result;
+        }
+    }
+
+    /**
+     * Price in cents rounded by the {@link RoundingMode#HALF_UP}.
+     * @return The {@link #NO_PRICE} for a missing price or for a price out of the range.
+     */
+    static long toCents(@Nullable BigDecimal price, @Nullable String hotelName) {
+        if (price == null) {
+            return NO_PRICE;
+        } else if (price.abs().compareTo(MAX_PRICE) > 0) {
+            LOGGER.log(Level.WARNING, "Price of the hotel {0} is out of range: {1}", new Object[]{hotelName, price.toString()});
+            return NO_PRICE;
+        }
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
@@ -0,0 +1,107 @@
+package net.ponec.demo.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A keyset cursor of a hotel page.
+ * The cursor refers to the first or the last row of a page in the sorted order of one snapshot,
+ * the next page starts after the row and the previous page ends before the row.
+ * A cursor of another snapshot or another sort is ignored.
+ *
+ * @author Pavel Ponec
+ */
+public final class PageCursor {
+
+    /** Separator of the text form */
+    private static final char SEPARATOR = '.';
+
+    /** Rows after the cursor row are required, else rows before it */
+    private final boolean next;
+    /** Version of the snapshot */
+    private final long version;
+    /** Sorted column */
+    private final HotelColumn column;
+    /** Descending direction */
+    private final boolean descending;
+    /** Row of the snapshot table */
+    private final int row;
+
+    private PageCursor(boolean next, long version, @NotNull HotelColumn column, boolean descending, int row) {
+        this.next = next;
+        this.version = version;
+        this.column = column;
+        this.descending = descending;
+        this.row = row;
+    }
+
+    /** Rows after the cursor row are required, else rows before it */
+    public boolean isNext() {
+        return next;
+    }
+
+    /** Row of the snapshot table */
+    public int getRow() {
+        return row;
+    }
+
+    /** Is the cursor related to the snapshot and the sort? */
+    public boolean isValidFor(@NotNull HotelSnapshot snapshot, @NotNull HotelColumn column, boolean descending) {
+        return version == snapshot.getVersion()
+                && this.column == column
+                && this.descending == descending
+                && row >= 0
+                && row < snapshot.size();
+    }
+
+    /** A cursor of the next page starting after the row */
+    @NotNull
+    public static PageCursor next(@NotNull HotelSnapshot snapshot, @NotNull HotelColumn column, boolean descending, int row) {
+        return new PageCursor(true, snapshot.getVersion(), column, descending, row);
+    }
+
+    /** A cursor of the previous page ending before the row */
+    @NotNull
+    public static PageCursor previous(@NotNull HotelSnapshot snapshot, @NotNull HotelColumn column, boolean descending, int row) {
+        return new PageCursor(false, snapshot.getVersion(), column, descending, row);
+    }
+
+    /**
+     * Parse a text form of the cursor.
+     * @return The {@code null} value for an empty or a damaged text.
+     */
+    @Nullable
+    public static PageCursor parse(@Nullable String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        final String[] items = text.split("\\" + SEPARATOR, -1);
+        if (items.length != 5
+                || !items[0].matches("[np]")
+                || !items[3].matches("[ad]")) {
+            return null;
+        }
+        try {
+            final int row = Integer.parseInt(items[4]);
+            return row >= 0
+                    ? new PageCursor("n".equals(items[0]),
+                            Long.parseLong(items[1]),
+                            HotelColumn.valueOf(items[2]),
+                            "d".equals(items[3]),
+                            row)
+                    : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** A text form of the cursor for an HTTP parameter */
+    @Override
+    public String toString() {
+        return (next ? "n" : "p") + SEPARATOR
+                + version + SEPARATOR
+                + column.name() + SEPARATOR
+                + (descending ? "d" : "a") + SEPARATOR
+                + row;
+    }
+}
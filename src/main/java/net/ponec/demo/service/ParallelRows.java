@@ -0,0 +1,267 @@
+package net.ponec.demo.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Fork/join operations over table rows.
+ * A range of rows is split into chunks, each chunk is processed by a task of the common pool
+ * and the partial results are merged in the order of chunks,
+ * so the result is the same as a result of the sequential processing.
+ * A row count under the threshold is processed sequentially in the calling thread,
+ * a larger one is submitted to the common pool.
+ * A chunk selecting the top keys keeps a bounded heap, so its memory depends on the key count only.
+ *
+ * @author Pavel Ponec
+ */
+public final class ParallelRows {
+
+    /** Minimal row count for a parallel processing, see the system property {@code ajax-demo.parallel.threshold} */
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("ajax-demo.parallel.threshold", 1 << 15);
+
+    private ParallelRows() {
+    }
+
+    /**
+     * Select rows accepted by the predicate.
+     * @param size Count of indexes
+     * @param rowAt Row of an index
+     * @param predicate A row filter
+     * @return Accepted rows in the order of indexes
+     */
+    @NotNull
+    public static int[] filter(int size, @NotNull IntUnaryOperator rowAt, @NotNull IntPredicate predicate) {
+        return filter(size, rowAt, predicate, PARALLEL_THRESHOLD);
+    }
+
+    /** Select rows accepted by the predicate with a custom parallel threshold */
+    @NotNull
+    static int[] filter(int size, @NotNull IntUnaryOperator rowAt, @NotNull IntPredicate predicate, int threshold) {
+        return size < threshold
+                ? filterRange(0, size, rowAt, predicate)
+                : ForkJoinPool.commonPool().invoke(new FilterTask(0, size, chunkSize(threshold), rowAt, predicate));
+    }
+
+    /**
+     * Select the lowest or the highest unique keys of rows in a range.
+     * @param rows Rows
+     * @param key A unique key of a row
+     * @param from The lowest accepted key, inclusive
+     * @param to The highest accepted key, exclusive
+     * @param count Max count of keys
+     * @param highest Select the highest keys, else the lowest keys
+     * @return Selected keys in the ascending order
+     */
+    @NotNull
+    public static int[] topKeys(
+            @NotNull int[] rows,
+            @NotNull IntUnaryOperator key,
+            int from,
+            int to,
+            int count,
+            boolean highest) {
+        return topKeys(rows, key, from, to, count, highest, PARALLEL_THRESHOLD);
+    }
+
+    /** Select the top keys of rows with a custom parallel threshold */
+    @NotNull
+    static int[] topKeys(
+            @NotNull int[] rows,
+            @NotNull IntUnaryOperator key,
+            int from,
+            int to,
+            int count,
+            boolean highest,
+            int threshold) {
+        return rows.length < threshold
+                ? topKeysRange(rows, 0, rows.length, key, from, to, Math.max(count, 0), highest)
+                : ForkJoinPool.commonPool().invoke(new TopKeysTask(rows, 0, rows.length, chunkSize(threshold),
+                        key, from, to, Math.max(count, 0), highest));
+    }
+
+    /** Select rows of a range of indexes sequentially */
+    @NotNull
+    private static int[] filterRange(int begin, int end, IntUnaryOperator rowAt, IntPredicate predicate) {
+        int[] result = new int[Math.min(end - begin, 16)];
+        int size = 0;
+        for (int i = begin; i < end; i++) {
+            final int row = rowAt.applyAsInt(i);
+            if (predicate.test(row)) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size << 1);
+                }
+                result[size++] = row;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /** Select the top keys of a range of rows sequentially */
+    @NotNull
+    private static int[] topKeysRange(int[] rows, int begin, int end,
+            IntUnaryOperator key, int from, int to, int count, boolean highest) {
+        final KeyHeap heap = new KeyHeap(Math.min(count, end - begin), highest);
+        for (int i = begin; i < end; i++) {
+            final int value = key.applyAsInt(rows[i]);
+            if (value >= from && value < to) {
+                heap.add(value);
+            }
+        }
+        return heap.toSortedArray();
+    }
+
+    /** Chunk size of a parallel processing */
+    private static int chunkSize(int threshold) {
+        return Math.max(threshold >> 2, 1);
+    }
+
+    /** Filter a range of indexes */
+    private static final class FilterTask extends RecursiveTask<int[]> {
+        private final int begin;
+        private final int end;
+        private final int chunkSize;
+        private final IntUnaryOperator rowAt;
+        private final IntPredicate predicate;
+
+        FilterTask(int begin, int end, int chunkSize, IntUnaryOperator rowAt, IntPredicate predicate) {
+            this.begin = begin;
+            this.end = end;
+            this.chunkSize = chunkSize;
+            this.rowAt = rowAt;
+            this.predicate = predicate;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (end - begin <= chunkSize) {
+                return filterRange(begin, end, rowAt, predicate);
+            }
+            final int middle = (begin + end) >>> 1;
+            final FilterTask right = new FilterTask(middle, end, chunkSize, rowAt, predicate);
+            right.fork();
+            final int[] first = new FilterTask(begin, middle, chunkSize, rowAt, predicate).compute();
+            final int[] second = right.join();
+            final int[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+    }
+
+    /** Select the top keys of a range of rows */
+    private static final class TopKeysTask extends RecursiveTask<int[]> {
+        private final int[] rows;
+        private final int begin;
+        private final int end;
+        private final int chunkSize;
+        private final IntUnaryOperator key;
+        private final int from;
+        private final int to;
+        private final int count;
+        private final boolean highest;
+
+        TopKeysTask(int[] rows, int begin, int end, int chunkSize,
+                IntUnaryOperator key, int from, int to, int count, boolean highest) {
+            this.rows = rows;
+            this.begin = begin;
+            this.end = end;
+            this.chunkSize = chunkSize;
+            this.key = key;
+            this.from = from;
+            this.to = to;
+            this.count = count;
+            this.highest = highest;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (end - begin <= chunkSize) {
+                return topKeysRange(rows, begin, end, key, from, to, count, highest);
+            }
+            final int middle = (begin + end) >>> 1;
+            final TopKeysTask right = new TopKeysTask(rows, middle, end, chunkSize, key, from, to, count, highest);
+            right.fork();
+            final int[] first = new TopKeysTask(rows, begin, middle, chunkSize, key, from, to, count, highest).compute();
+            return merge(first, right.join());
+        }
+
+        /** Merge two ascending arrays of unique keys and keep the top keys */
+        private int[] merge(int[] first, int[] second) {
+            final int size = Math.min(count, first.length + second.length);
+            final int[] result = new int[size];
+            if (highest) {
+                int i = first.length - 1;
+                int j = second.length - 1;
+                for (int k = size - 1; k >= 0; k--) {
+                    result[k] = j < 0 || (i >= 0 && first[i] > second[j]) ? first[i--] : second[j--];
+                }
+            } else {
+                int i = 0;
+                int j = 0;
+                for (int k = 0; k < size; k++) {
+                    result[k] = j >= second.length || (i < first.length && first[i] < second[j]) ? first[i++] : second[j++];
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A bounded heap of unique keys with the worst key on the top,
+     * so a selection of {@code k} keys takes O(k) memory only.
+     */
+    private static final class KeyHeap {
+        private final int[] keys;
+        /** Keep the highest keys, else the lowest keys */
+        private final boolean highest;
+        private int size;
+
+        KeyHeap(int capacity, boolean highest) {
+            this.keys = new int[capacity];
+            this.highest = highest;
+        }
+
+        /** Is the first key worse than the second one? */
+        private boolean worse(int first, int second) {
+            return highest ? first < second : first > second;
+        }
+
+        void add(int key) {
+            if (size < keys.length) {
+                int i = size++;
+                while (i > 0) {
+                    final int parent = (i - 1) >>> 1;
+                    if (!worse(key, keys[parent])) {
+                        break;
+                    }
+                    keys[i] = keys[parent];
+                    i = parent;
+                }
+                keys[i] = key;
+            } else if (size > 0 && worse(keys[0], key)) {
+                int i = 0;
+                for (int child = 1; child < size; child = (i << 1) + 1) {
+                    if (child + 1 < size && worse(keys[child + 1], keys[child])) {
+                        child++;
+                    }
+                    if (!worse(keys[child], key)) {
+                        break;
+                    }
+                    keys[i] = keys[child];
+                    i = child;
+                }
+                keys[i] = key;
+            }
+        }
+
+        /** Selected keys in the ascending order */
+        int[] toSortedArray() {
+            final int[] result = Arrays.copyOf(keys, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package net.ponec.demo.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A bounded cache with the LRU and TTL eviction and with hit/miss counters.
+ * A missing value is computed outside of the lock, so a slow computation doesn't block other readers.
+ *
+ * @author Pavel Ponec
+ */
+public final class QueryCache<K, V> {
+
+    /** Max entry count */
+    private final int maxSize;
+    /** Time to live of an entry in nanoseconds */
+    private final long ttlNanos;
+    /** Entries in the access order */
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public QueryCache(int maxSize, @NotNull Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<K, Entry<V>>(Math.min(maxSize, 1024) * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                final boolean result = size() > QueryCache.this.maxSize;
+                if (result) {
+                    evictions.increment();
+                }
+                return result;
+            }
+        };
+    }
+
+    /** Returns a valid cached value or {@code null} */
+    @Nullable
+    public V get(@NotNull K key) {
+        final long now = System.nanoTime();
+        synchronized (entries) {
+            final Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.created < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** Put a value to the cache */
+    public void put(@NotNull K key, @NotNull V value) {
+        final Entry<V> entry = new Entry<>(value, System.nanoTime());
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /** Returns a cached value or compute and cache a new one */
+    @NotNull
+    public V computeIfAbsent(@NotNull K key, @NotNull Function<K, V> function) {
+        V result = get(key);
+        if (result == null) {
+            result = function.apply(key);
+            put(key, result);
+        }
+        return result;
+    }
+
+    /** Remove all entries */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /** Entry count */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Count of entries removed by the LRU or TTL rule */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCache{size=" + size()
+                + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + '}';
+    }
+
+    /** A value with its creation time */
+    private static final class Entry<V> {
+        final V value;
+        final long created;
+
+        Entry(V value, long created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+}
@@ -19,11 +19,17 @@ import net.ponec.demo.model.Message;
 import org.ujorm.tools.xml.builder.XmlPrinter;
 import org.ujorm.tools.xml.config.XmlConfig;
 
-import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import org.jetbrains.annotations.NotNull;
-import org.ujorm.tools.xml.config.HtmlConfig;
+import org.jetbrains.annotations.Nullable;
 
 /**
+ * Highlights matches of a regular expression.
+ * The AJAX form sends the same regular expression with each keystroke,
+ * so compiled patterns (including compilation failures) are cached.
  *
  * @author Pavel Ponec
  */
@@ -31,6 +37,18 @@ public class RegexpService {
 
     /** Max text length */
     private static final int MAX_LENGTH = 1_100;
+    /** Max entry count of the pattern cache */
+    static final int PATTERN_CACHE_SIZE = 256;
+    /** Time to live of a cached pattern */
+    static final Duration PATTERN_CACHE_TTL = Duration.ofHours(1);
+    /** Begin of a highlighted match */
+    private static final String BEG_TAG = "<span>";
+    /** End of a highlighted match */
+    private static final String END_TAG = "</span>";
+
+    /** Compiled patterns by a regular expression */
+    private final QueryCache<String, CompiledPattern> patternCache
+            = new QueryCache<>(PATTERN_CACHE_SIZE, PATTERN_CACHE_TTL);
 
     /**
      * Highlights the original text according to the regular expression
@@ -47,20 +65,60 @@ public class RegexpService {
                         MAX_LENGTH);
                 throw new IllegalArgumentException(msg);
             }
-            SecureRandom random = new SecureRandom();
-            String begTag = "_" + random.nextLong();
-            String endTag = "_" + random.nextLong();
-            String rawText = text.replaceAll(
-                    "(" + regexp + ")",
-                    begTag + "$1" + endTag);
-            XmlPrinter printer = new XmlPrinter(new StringBuilder(), XmlConfig.ofDoctype(""));
-            printer.write(rawText, false);
-            return Message.of(printer.toString()
-                    .replaceAll(begTag, "<span>")
-                    .replaceAll(endTag, "</span>")
-            );
+            final Matcher matcher = patternCache.computeIfAbsent(regexp, CompiledPattern::of)
+                    .getPattern()
+                    .matcher(text);
+            final StringBuilder result = new StringBuilder(text.length() + 32);
+            final XmlPrinter printer = new XmlPrinter(result, XmlConfig.ofDoctype(""));
+            int last = 0;
+            while (matcher.find()) {
+                printer.write(text.substring(last, matcher.start()), false);
+                result.append(BEG_TAG);
+                printer.write(matcher.group(), false);
+                result.append(END_TAG);
+                last = matcher.end();
+            }
+            printer.write(text.substring(last), false);
+            return Message.of(result.toString());
         } catch (Exception | OutOfMemoryError e) {
             return Message.of(e);
         }
     }
+
+    /** Cache of compiled patterns */
+    @NotNull
+    public QueryCache<?, ?> getPatternCache() {
+        return patternCache;
+    }
+
+    /** A compiled pattern or its compilation failure */
+    private static final class CompiledPattern {
+        @Nullable
+        private final Pattern pattern;
+        @Nullable
+        private final PatternSyntaxException error;
+
+        private CompiledPattern(@Nullable Pattern pattern, @Nullable PatternSyntaxException error) {
+            this.pattern = pattern;
+            this.error = error;
+        }
+
+        /** Returns the pattern or throws the cached compilation failure */
+        @NotNull
+        Pattern getPattern() {
+            if (error != null) {
+                throw error;
+            }
+            return pattern;
+        }
+
+        @NotNull
+        static CompiledPattern of(@NotNull String regexp) {
+            try {
+                return new CompiledPattern(Pattern.compile(regexp), null);
+            } catch (PatternSyntaxException e) {
+                return new CompiledPattern(null, e);
+            }
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package net.ponec.demo.service;
+
+import java.io.Serializable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Matching rows of the last search of one user session.
+ * When a user types, a new pattern usually extends the previous one (or a range gets narrower),
+ * so its matches are a subset of the previous matches and only they are checked.
+ * Other patterns run a full selection of the snapshot.
+ * The candidates are not serialized, a restored session starts with a full selection.
+ *
+ * @author Pavel Ponec
+ */
+public final class SearchRefinement implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Max count of remembered rows */
+    static final int MAX_CANDIDATES = 10_000;
+
+    /** The last search or {@code null} */
+    private transient volatile Candidates last;
+
+    /**
+     * Ascending rows of hotels accepted by the filter.
+     * @param snapshot The current snapshot
+     * @param filter A filter of hotels
+     */
+    @NotNull
+    public int[] selectRows(@NotNull HotelSnapshot snapshot, @NotNull HotelFilter filter) {
+        final Candidates previous = last;
+        final int[] result = previous != null && previous.isRefinedBy(snapshot, filter)
+                ? snapshot.refineRows(previous.rows, filter).toArray()
+                : snapshot.selectRows(filter).toArray();
+        last = result.length <= MAX_CANDIDATES
+                ? new Candidates(snapshot.getVersion(), filter, result)
+                : null;
+        return result;
+    }
+
+    /** Forget the last search */
+    public void clear() {
+        last = null;
+    }
+
+    /** Matching rows of a search */
+    private static final class Candidates {
+        final long version;
+        final HotelFilter filter;
+        final int[] rows;
+
+        Candidates(long version, HotelFilter filter, int[] rows) {
+            this.version = version;
+            this.filter = filter;
+            this.rows = rows;
+        }
+
+        /** Is the new filter a narrowing of this search on the same snapshot? */
+        boolean isRefinedBy(@NotNull HotelSnapshot snapshot, @NotNull HotelFilter filter) {
+            return version == snapshot.getVersion()
+                    && filter.refines(this.filter);
+        }
+    }
+}
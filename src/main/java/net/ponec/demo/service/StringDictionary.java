@@ -0,0 +1,92 @@
+package net.ponec.demo.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A load-time dictionary of low-cardinality strings.
+ * Each distinct string gets an int code and one shared instance,
+ * so columns can store codes and the facet indexes can count them.
+ * The dictionary is filled during a table build and it is read-only after that.
+ *
+ * @author Pavel Ponec
+ */
+public final class StringDictionary {
+
+    /** Code of the {@code null} value */
+    public static final int NULL_CODE = -1;
+
+    /** Code of an unknown string */
+    public static final int UNKNOWN_CODE = -2;
+
+    /** Codes by strings */
+    private final Map<String, Integer> codes = new HashMap<>();
+    /** Strings by codes */
+    private String[] values = new String[16];
+
+    /** A dictionary of distinct strings, the code of a string is its index */
+    @NotNull
+    static StringDictionary of(@NotNull String... values) {
+        final StringDictionary result = new StringDictionary();
+        for (String value : values) {
+            result.encode(value);
+        }
+        if (result.size() != values.length) {
+            throw new IllegalArgumentException("Strings are not distinct");
+        }
+        return result;
+    }
+
+    /** Returns a code of the string, a new string gets a new code */
+    public int encode(@Nullable String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        final Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        final int result = codes.size();
+        if (result == values.length) {
+            values = Arrays.copyOf(values, result << 1);
+        }
+        values[result] = value;
+        codes.put(value, result);
+        return result;
+    }
+
+    /** Returns a code of the string without any change, an unknown string returns the {@link #UNKNOWN_CODE} */
+    public int codeOf(@Nullable String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        final Integer code = codes.get(value);
+        return code != null ? code : UNKNOWN_CODE;
+    }
+
+    /** Returns the shared instance of an equal string */
+    @Nullable
+    public String canonical(@Nullable String value) {
+        return decode(encode(value));
+    }
+
+    /** Returns a string of the code */
+    @Nullable
+    public String decode(int code) {
+        return code != NULL_CODE ? values[code] : null;
+    }
+
+    /** Count of distinct strings */
+    public int size() {
+        return codes.size();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "StringDictionary{size=" + codes.size() + '}';
+    }
+}
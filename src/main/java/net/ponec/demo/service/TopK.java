@@ -0,0 +1,100 @@
+package net.ponec.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A bounded heap selecting the first {@code limit} items along a comparator.
+ * The result is the same as the {@code sorted(comparator).limit(limit)} stream,
+ * including the encounter order of equal items,
+ * but it takes O(n log k) time and O(k) memory only.
+ *
+ * @author Pavel Ponec
+ */
+public final class TopK<T> {
+
+    /** Comparator of items */
+    private final Comparator<? super T> comparator;
+    /** Max item count */
+    private final int limit;
+    /** A heap with the worst item on the top */
+    private final PriorityQueue<Entry<T>> heap;
+    /** Encounter sequence of the next item */
+    private long sequence = 0L;
+
+    public TopK(@NotNull Comparator<? super T> comparator, int limit) {
+        this.comparator = comparator;
+        this.limit = Math.max(0, limit);
+        this.heap = new PriorityQueue<>(Math.min(this.limit, 1024) + 1, this::compareEntry);
+    }
+
+    /** Descending order of entries, the later item is greater for equal values */
+    private int compareEntry(Entry<T> a, Entry<T> b) {
+        final int result = comparator.compare(b.value, a.value);
+        return result != 0 ? result : Long.compare(b.sequence, a.sequence);
+    }
+
+    /** Add an item in the encounter order */
+    public void add(T item) {
+        final long seq = sequence++;
+        if (heap.size() < limit) {
+            heap.add(new Entry<>(item, seq));
+        } else if (limit > 0 && comparator.compare(item, heap.peek().value) < 0) {
+            heap.poll();
+            heap.add(new Entry<>(item, seq));
+        }
+    }
+
+    /** Merge a selection of the following items */
+    @NotNull
+    public TopK<T> merge(@NotNull TopK<T> next) {
+        for (T item : next.toList()) {
+            add(item);
+        }
+        return this;
+    }
+
+    /** Selected items in the sorted order */
+    @NotNull
+    public List<T> toList() {
+        final List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort(Collections.reverseOrder(this::compareEntry));
+        final List<T> result = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries) {
+            result.add(entry.value);
+        }
+        return result;
+    }
+
+    /**
+     * A collector of the first items in a sorted order.
+     * @param comparator Comparator of items
+     * @param limit Max item count
+     */
+    @NotNull
+    public static <T> Collector<T, ?, List<T>> collector(
+            @NotNull Comparator<? super T> comparator,
+            int limit) {
+        return Collector.of(
+                () -> new TopK<T>(comparator, limit),
+                TopK::add,
+                TopK::merge,
+                TopK::toList);
+    }
+
+    /** An item with its encounter sequence */
+    private static final class Entry<T> {
+        final T value;
+        final long sequence;
+
+        Entry(T value, long sequence) {
+            this.value = value;
+            this.sequence = sequence;
+        }
+    }
+}
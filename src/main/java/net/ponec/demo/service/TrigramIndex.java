@@ -0,0 +1,158 @@
+package net.ponec.demo.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An inverted index of character trigrams for the "contains" filters.
+ * A posting list contains ascending row numbers of the keys containing the trigram,
+ * so the index returns a superset of rows containing a pattern of three or more characters.
+ *
+ * @author Pavel Ponec
+ */
+public final class TrigramIndex {
+
+    /** Length of the N-gram */
+    public static final int GRAM_LENGTH = 3;
+
+    /** An empty row array */
+    private static final int[] NO_ROWS = new int[0];
+
+    /** Posting lists by the trigram code */
+    private final Map<Long, int[]> postings;
+
+    private TrigramIndex(@NotNull Map<Long, int[]> postings) {
+        this.postings = postings;
+    }
+
+    /**
+     * Returns ascending numbers of rows, which can contain the pattern.
+     * The result must be checked by an exact filter.
+     * @param pattern A normalized pattern
+     * @return The {@code null} value means that the index can't narrow rows for a short pattern.
+     */
+    @Nullable
+    public int[] candidates(@NotNull String pattern) {
+        if (pattern.length() < GRAM_LENGTH) {
+            return null;
+        }
+        final int[][] lists = new int[pattern.length() - GRAM_LENGTH + 1][];
+        for (int i = 0; i < lists.length; i++) {
+            final int[] rows = postings.get(code(pattern, i));
+            if (rows == null) {
+                return NO_ROWS;
+            }
+            lists[i] = rows;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(rows -> rows.length));
+        int[] result = lists[0];
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            if (lists[i] != lists[i - 1]) {
+                result = intersect(result, lists[i]);
+            }
+        }
+        return result;
+    }
+
+    /** Codes of trigrams in the order of the {@link #postings()} */
+    @NotNull
+    long[] codes() {
+        return postings.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /** Posting lists in the order of the {@link #codes()}, the arrays are not copied */
+    @NotNull
+    int[][] postings() {
+        return postings.values().toArray(new int[0][]);
+    }
+
+    /** Intersection of two ascending arrays, the first one should be the shorter one */
+    static int[] intersect(int[] small, int[] large) {
+        final int[] result = new int[small.length];
+        int size = 0;
+        int from = 0;
+        for (int row : small) {
+            final int i = Arrays.binarySearch(large, from, large.length, row);
+            if (i >= 0) {
+                result[size++] = row;
+                from = i + 1;
+            } else {
+                from = -i - 1;
+                if (from >= large.length) {
+                    break;
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /** Code of a trigram starting on the offset */
+    private static long code(@NotNull String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+             | ((long) text.charAt(offset + 1) << 16)
+             | text.charAt(offset + 2);
+    }
+
+    /**
+     * Build an index of normalized keys where the array index is the row number.
+     * @param keys Normalized keys, the {@code null} value is ignored.
+     */
+    @NotNull
+    public static TrigramIndex of(@NotNull String[] keys) {
+        final Map<Long, IntList> builder = new HashMap<>();
+        for (int row = 0; row < keys.length; row++) {
+            final String key = keys[row];
+            if (key == null) {
+                continue;
+            }
+            for (int i = 0, max = key.length() - GRAM_LENGTH; i <= max; i++) {
+                builder.computeIfAbsent(code(key, i), c -> new IntList()).addUnique(row);
+            }
+        }
+        final Map<Long, int[]> postings = new HashMap<>(builder.size() * 4 / 3 + 1);
+        builder.forEach((code, rows) -> postings.put(code, rows.toArray()));
+        return new TrigramIndex(postings);
+    }
+
+    /**
+     * An index of stored posting lists.
+     * @param codes Codes of trigrams, see the {@link #codes()}
+     * @param postings Ascending rows of each trigram, see the {@link #postings()}
+     */
+    @NotNull
+    static TrigramIndex of(@NotNull long[] codes, @NotNull int[][] postings) {
+        if (codes.length != postings.length) {
+            throw new IllegalArgumentException("Codes don't match the postings");
+        }
+        final Map<Long, int[]> result = new HashMap<>(codes.length * 4 / 3 + 1);
+        for (int i = 0; i < codes.length; i++) {
+            result.put(codes[i], postings[i]);
+        }
+        return new TrigramIndex(result);
+    }
+
+    /** A growing list of ascending rows */
+    private static final class IntList {
+        private int[] items = new int[4];
+        private int size = 0;
+
+        /** Add a row if it differs from the last one */
+        void addUnique(int row) {
+            if (size > 0 && items[size - 1] == row) {
+                return;
+            }
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size << 1);
+            }
+            items[size++] = row;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package net.ponec.demo.servlet;
 
+import net.ponec.demo.service.DataRegistry;
 import org.jetbrains.annotations.NotNull;
 import org.ujorm.tools.web.HtmlElement;
 import org.ujorm.tools.web.json.JsonBuilder;
@@ -50,7 +51,7 @@ public abstract class AbstractServlet extends HttpServlet {
             final HttpServletRequest request,
             final HttpServletResponse response) throws IOException {
         try {
-            doGet(RContext.ofServlet(request, response));
+            doGet(RContext.ofServlet(request, response), request);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, e.getMessage(), e);
             int httpStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
@@ -62,6 +63,15 @@ public abstract class AbstractServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Handles the HTTP <code>GET</code> method with the servlet request, e.g. for its session.
+     * @param context servlet request and response
+     * @param request servlet request
+     */
+    protected void doGet(RContext context, HttpServletRequest request) {
+        doGet(context);
+    }
+
     /**
      * Handles the HTTP <code>GET</code> method.
      * @param requestContext servlet request and response
@@ -79,7 +89,7 @@ public abstract class AbstractServlet extends HttpServlet {
         Map<String, String[]> map = input.getParameterMap();
         LOGGER.info("" + map);
         try {
-            doPost(RContext.ofServlet(input, output));
+            doPost(RContext.ofServlet(input, output), input);
         } catch (Exception e) {
             int httpStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
             output.setStatus(httpStatus, "Internal error");
@@ -88,6 +98,16 @@ public abstract class AbstractServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Handles the HTTP <code>POST</code> method with the servlet request, e.g. for its session.
+     * @param context servlet request and response
+     * @param request servlet request
+     * @throws Exception if an I/O error occurs
+     */
+    protected void doPost(RContext context, HttpServletRequest request) throws Exception {
+        doPost(context);
+    }
+
     /**
      * Handles the HTTP <code>GET</code> method.
      * @param context servlet response
@@ -108,6 +128,11 @@ public abstract class AbstractServlet extends HttpServlet {
         return output;
     }
 
+    /** Returns the data registry of the web application */
+    protected @NotNull DataRegistry getRegistry() {
+        return DataRegistryListener.getRegistry(getServletContext());
+    }
+
     /** Create new HTML element */
     protected @NotNull HtmlElement getHtmlElement(
             RContext context,
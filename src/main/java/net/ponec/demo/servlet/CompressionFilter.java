@@ -0,0 +1,429 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec/demo-ajax
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.servlet;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A gzip compression of dynamic text responses.
+ * A response is buffered up to a threshold, a shorter response is sent without compression.
+ * A flush of a streamed response compresses the buffered data immediately,
+ * so the chunks of rows reach the client without a delay.
+ * Deflaters are pooled, so a request doesn't allocate their native memory.
+ * A response with its own content encoding (e.g. a precompressed asset) is not changed.
+ * A strong ETag of a response, which can be compressed, is changed to a weak one,
+ * because the gzip and identity variants must not share a strong validator.
+ * The filter doesn't support an asynchronous (non-blocking) output.
+ *
+ * @author Pavel Ponec
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = false)
+public class CompressionFilter implements Filter {
+
+    /** Min size of a compressed response in bytes, see the system property {@code ajax-demo.compression.threshold} */
+    static final int THRESHOLD = Integer.getInteger("ajax-demo.compression.threshold", 1024);
+    /** Max count of pooled deflaters */
+    static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+    /** Idle deflaters */
+    private static final BlockingQueue<Deflater> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    @Override
+    public void init(FilterConfig config) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.addHeader("Vary", "Accept-Encoding");
+        if (!acceptsGzip(((HttpServletRequest) request).getHeader("Accept-Encoding"))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final CompressedResponse wrapper = new CompressedResponse(httpResponse);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            wrapper.finish();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Deflater deflater;
+        while ((deflater = POOL.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+    /** Does the Accept-Encoding header accept the gzip encoding? */
+    static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String item : acceptEncoding.split(",")) {
+            final String[] parts = item.split(";");
+            final String coding = parts[0].trim();
+            if (coding.equalsIgnoreCase("gzip") || coding.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    final String parameter = parts[i].replace(" ", "");
+                    if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Is the content type a compressible text?
+     * The HTML and AJAX writers of the {@link AbstractServlet} don't set any content type,
+     * so a missing content type is a text too.
+     */
+    static boolean isCompressible(@Nullable String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        final String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/")
+                || type.startsWith("application/json")
+                || type.startsWith("application/javascript")
+                || type.startsWith("image/svg+xml");
+    }
+
+    /** Returns a weak variant of a strong ETag, other headers are not changed */
+    @Nullable
+    static String weakenETag(@NotNull String name, @Nullable String value) {
+        return value != null && value.startsWith("\"") && "ETag".equalsIgnoreCase(name)
+                ? "W/" + value
+                : value;
+    }
+
+    /**
+     * Does the If-None-Match header match the ETag?
+     * A weak comparison is used, because this filter weakens the ETag of a compressed response.
+     */
+    static boolean isNotModified(@Nullable String ifNoneMatch, @NotNull String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String item : ifNoneMatch.split(",")) {
+            final String tag = item.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Take a deflater from the pool or create a new one */
+    @NotNull
+    static Deflater acquireDeflater() {
+        final Deflater result = POOL.poll();
+        return result != null ? result : new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    }
+
+    /** Return a deflater to the pool, an extra deflater releases its native memory */
+    static void releaseDeflater(@NotNull Deflater deflater) {
+        deflater.reset();
+        if (!POOL.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /** A response compressed after the threshold */
+    public static final class CompressedResponse extends HttpServletResponseWrapper {
+        private final HttpServletResponse response;
+        private BufferedStream stream;
+        private PrintWriter writer;
+
+        CompressedResponse(HttpServletResponse response) {
+            super(response);
+            this.response = response;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("The writer is used");
+            }
+            if (stream == null) {
+                stream = new BufferedStream(response);
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("The output stream is used");
+                }
+                final String encoding = getCharacterEncoding();
+                stream = new BufferedStream(response);
+                writer = new PrintWriter(new OutputStreamWriter(stream,
+                        encoding != null ? encoding : StandardCharsets.ISO_8859_1.name()));
+            }
+            return writer;
+        }
+
+        /** A length of the compressed content is unknown */
+        @Override
+        public void setContentLength(int length) {
+        }
+
+        /** A length of the compressed content is unknown */
+        @Override
+        public void setContentLengthLong(long length) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!"Content-Length".equalsIgnoreCase(name)) {
+                super.setHeader(name, weakenETag(name, value));
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!"Content-Length".equalsIgnoreCase(name)) {
+                super.addHeader(name, weakenETag(name, value));
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (stream != null) {
+                stream.flush();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (stream != null) {
+                stream.resetBuffer();
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (stream != null) {
+                stream.resetBuffer();
+            }
+        }
+
+        /** Write the buffered data and finish the compression */
+        void finish() throws IOException {
+            if (stream != null) {
+                stream.closing = true;
+                if (writer != null) {
+                    writer.flush();
+                }
+                stream.close();
+            }
+        }
+    }
+
+    /** An output stream, which selects the compression by the first chunk of data */
+    static final class BufferedStream extends ServletOutputStream {
+        private final HttpServletResponse response;
+        private byte[] buffer = new byte[THRESHOLD];
+        private int size;
+        /** Output after the decision or {@code null} */
+        private OutputStream output;
+        private GzipStream gzip;
+        private boolean closed;
+        /** A flush of the closing response doesn't select the compression */
+        private boolean closing;
+
+        BufferedStream(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("The stream is closed");
+            }
+            if (output == null && size + length <= buffer.length) {
+                System.arraycopy(bytes, offset, buffer, size, length);
+                size += length;
+                return;
+            }
+            if (output == null) {
+                start(true);
+            }
+            output.write(bytes, offset, length);
+        }
+
+        /** A flush of a streamed response compresses buffered data */
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (output == null && size > 0 && !closing) {
+                start(true);
+            }
+            if (output != null) {
+                output.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                if (output == null && size > 0) {
+                    start(false);
+                }
+                if (gzip != null) {
+                    gzip.finish();
+                }
+                if (output != null) {
+                    output.flush();
+                }
+            } finally {
+                closed = true;
+                if (gzip != null) {
+                    releaseDeflater(gzip.deflater);
+                    gzip = null;
+                }
+            }
+        }
+
+        /** Discard the buffered data before the decision */
+        void resetBuffer() {
+            if (output == null) {
+                size = 0;
+            }
+        }
+
+        /**
+         * Select an output and write the buffered data.
+         * @param large Is the response longer than the threshold?
+         */
+        private void start(boolean large) throws IOException {
+            final boolean compress = large
+                    && !response.isCommitted()
+                    && response.getHeader("Content-Encoding") == null
+                    && isCompressible(response.getContentType());
+            if (compress) {
+                response.setHeader("Content-Encoding", "gzip");
+                gzip = new GzipStream(response.getOutputStream(), acquireDeflater());
+                output = gzip;
+            } else {
+                output = response.getOutputStream();
+            }
+            output.write(buffer, 0, size);
+            buffer = null;
+            size = 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        /** The filter is not async-capable, so a request of the filter is never asynchronous */
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new IllegalStateException("The request is not asynchronous");
+        }
+    }
+
+    /** A gzip stream of a pooled deflater, a flush sends all written data */
+    static final class GzipStream extends DeflaterOutputStream {
+        /** Header of the gzip format without a file name and time */
+        private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+
+        GzipStream(OutputStream output, Deflater deflater) throws IOException {
+            super(output, deflater, 8 * 1024, true);
+            this.deflater = deflater;
+            output.write(HEADER);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            super.write(bytes, offset, length);
+            crc.update(bytes, offset, length);
+        }
+
+        /** Finish the compressed data and write the trailer */
+        @Override
+        public void finish() throws IOException {
+            if (deflater.finished()) {
+                return;
+            }
+            super.finish();
+            writeInt((int) crc.getValue());
+            writeInt((int) deflater.getBytesRead());
+        }
+
+        /** Write an integer in the little-endian order */
+        private void writeInt(int value) throws IOException {
+            out.write(value & 0xff);
+            out.write((value >>> 8) & 0xff);
+            out.write((value >>> 16) & 0xff);
+            out.write((value >>> 24) & 0xff);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec/demo-ajax
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.servlet;
+
+import net.ponec.demo.service.DataRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates one data registry per web application, loads the data eagerly,
+ * warms the application up in a background thread and watches the data files.
+ *
+ * @author Pavel Ponec
+ */
+@WebListener
+public class DataRegistryListener implements ServletContextListener {
+    /** Logger */
+    private static final Logger LOGGER = Logger.getLogger(DataRegistryListener.class.getName());
+    /** Attribute name of the registry in the servlet context */
+    private static final String REGISTRY_ATTR = DataRegistry.class.getName();
+
+    /** A warm-up thread */
+    private Thread warmUpThread;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        final DataRegistry registry = getRegistry(event.getServletContext());
+        try {
+            registry.load();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Data loading fails", e);
+        }
+        warmUpThread = new Thread(registry::warmUp, "data-warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+        try {
+            registry.startWatching();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Data watching is not available", e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (warmUpThread != null) {
+            warmUpThread.interrupt();
+        }
+        try {
+            getRegistry(event.getServletContext()).close();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Data watching can't be closed", e);
+        }
+        event.getServletContext().removeAttribute(REGISTRY_ATTR);
+    }
+
+    /** Returns the data registry of the web application */
+    @NotNull
+    public static DataRegistry getRegistry(@NotNull ServletContext context) {
+        synchronized (context) {
+            DataRegistry result = (DataRegistry) context.getAttribute(REGISTRY_ATTR);
+            if (result == null) {
+                result = new DataRegistry();
+                context.setAttribute(REGISTRY_ATTR, result);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec/demo-ajax
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.servlet;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.HotelView;
+import net.ponec.demo.service.HotelColumn;
+import net.ponec.demo.service.HotelFilter;
+import net.ponec.demo.service.HotelPage;
+import net.ponec.demo.service.HotelService;
+import net.ponec.demo.service.PageCursor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * A JSON API of hotels with the same parameters as the hotel report:
+ * {@code name}, {@code city}, {@code sort} (a column name, the "-" prefix means a descending order),
+ * {@code limit} and {@code cursor} of the next page.
+ * Rows are written straight to the response writer without any intermediate tree.
+ * The ETag of a response is derived from the start time of the process, the snapshot version and the query,
+ * so a matching {@code If-None-Match} header returns the status 304 before any filtering.
+ *
+ * @author Pavel Ponec
+ */
+@WebServlet("/api/hotels")
+public class HotelApiServlet extends HttpServlet {
+    /** Start time of the process, snapshot versions of a restarted application never repeat an old ETag */
+    static final String PROCESS_NONCE = Long.toString(System.currentTimeMillis(), 36);
+    /** A hotel service */
+    private HotelService service;
+
+    /** Take the shared service from the data registry */
+    @Override
+    public void init() throws ServletException {
+        service = DataRegistryListener.getRegistry(getServletContext()).getHotelService();
+    }
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    @Override
+    protected void doGet(
+            final HttpServletRequest request,
+            final HttpServletResponse response) throws IOException {
+        final String sort = request.getParameter(Constants.SORT);
+        final boolean descending = sort != null && sort.startsWith(Constants.DESCENDING);
+        final HotelColumn column = parseColumn(descending ? sort.substring(1) : sort);
+        if (column == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown sort column: " + sort);
+            return;
+        }
+        final HotelFilter filter = HotelFilter.of(
+                request.getParameter(Constants.NAME),
+                request.getParameter(Constants.CITY));
+        final int limit = parseLimit(request.getParameter(Constants.LIMIT));
+        final String cursor = request.getParameter(Constants.CURSOR);
+        final String etag = etag(service.getSnapshot().getVersion(), filter, column, descending, limit, cursor);
+
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+        if (CompressionFilter.isNotModified(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        final HotelPage page = service.selectPage(column, descending, limit, filter, null, PageCursor.parse(cursor));
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final PrintWriter writer = response.getWriter();
+        final HotelServlet.ChunkFlusher flusher = new HotelServlet.ChunkFlusher(writer, Constants.FLUSH_ROWS);
+        writer.write("{\"hotels\":[");
+        boolean first = true;
+        for (HotelView hotel : page.getHotels()) {
+            if (!flusher.next()) {
+                return;
+            }
+            if (!first) {
+                writer.write(',');
+            }
+            writeHotel(writer, hotel);
+            first = false;
+        }
+        writer.write("],\"next\":");
+        writeString(writer, page.getNext() != null ? page.getNext().toString() : null);
+        writer.write('}');
+    }
+
+    /** Write a hotel as a JSON object */
+    protected void writeHotel(@NotNull PrintWriter writer, @NotNull HotelView hotel) {
+        final City city = hotel.getCity();
+        final BigDecimal price = hotel.getPrice();
+        writer.write("{\"name\":");
+        writeString(writer, hotel.getName());
+        writer.write(",\"city\":");
+        writeString(writer, city.getName());
+        writer.write(",\"country\":");
+        writeString(writer, city.getCountry());
+        writer.write(",\"street\":");
+        writeString(writer, hotel.getStreet());
+        writer.write(",\"phone\":");
+        writeString(writer, hotel.getPhone());
+        writer.write(",\"stars\":");
+        final Float stars = hotel.getStars();
+        // JSON has no NaN or Infinity:
+        writer.write(stars != null && Float.isFinite(stars) ? stars.toString() : "null");
+        writer.write(",\"price\":");
+        writer.write(price != null ? price.toPlainString() : "null");
+        writer.write(",\"currency\":");
+        writeString(writer, hotel.getCurrency());
+        writer.write(",\"homePage\":");
+        writeString(writer, hotel.getHomePage());
+        writer.write('}');
+    }
+
+    /** Write a JSON string or the {@code null} value */
+    protected static void writeString(@NotNull PrintWriter writer, @Nullable String text) {
+        if (text == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * A hotel column by its name ignoring the case.
+     * @return The {@link HotelColumn#NAME} for an empty text or {@code null} for an unknown column
+     */
+    @Nullable
+    protected static HotelColumn parseColumn(@Nullable String name) {
+        if (name == null || name.isEmpty()) {
+            return HotelColumn.NAME;
+        }
+        try {
+            return HotelColumn.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Row limit bounded by the {@link HotelServlet.Constants#MAX_ROW_LIMIT}, an invalid text means a default */
+    protected static int parseLimit(@Nullable String limit) {
+        try {
+            return limit != null
+                    ? Math.max(0, Math.min(Integer.parseInt(limit.trim()), HotelServlet.Constants.MAX_ROW_LIMIT))
+                    : HotelServlet.Constants.DEFAULT_ROW_LIMIT;
+        } catch (NumberFormatException e) {
+            return HotelServlet.Constants.DEFAULT_ROW_LIMIT;
+        }
+    }
+
+    /** A strong ETag of the process, the snapshot version and a 64-bit FNV-1a hash of the normalized query */
+    @NotNull
+    protected static String etag(long version, @NotNull HotelFilter filter, @NotNull HotelColumn column,
+            boolean descending, int limit, @Nullable String cursor) {
+        final String query = filter.getName() + '\n' + filter.getCity() + '\n' + column
+                + '\n' + descending + '\n' + limit + '\n' + (cursor != null ? cursor : "");
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < query.length(); i++) {
+            hash = (hash ^ query.charAt(i)) * 0x100000001b3L;
+        }
+        return '"' + PROCESS_NONCE + '.' + Long.toString(version, 36) + '-' + Long.toHexString(hash) + '"';
+    }
+
+    /** Servlet constants */
+    static class Constants {
+        static final String NAME = "name";
+        static final String CITY = "city";
+        /** A sorted column, see the {@link #DESCENDING} */
+        static final String SORT = "sort";
+        static final String LIMIT = "limit";
+        /** A keyset cursor of the next page */
+        static final String CURSOR = "cursor";
+        /** A prefix of the descending sort */
+        static final String DESCENDING = "-";
+        /** Row count of a flushed chunk */
+        static final int FLUSH_ROWS = 100;
+    }
+}
@@ -15,21 +15,40 @@
  */
 package net.ponec.demo.servlet;
 
-import net.ponec.demo.model.Hotel;
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.HotelView;
+import net.ponec.demo.service.GeoIndex;
+import net.ponec.demo.service.HotelColumn;
+import net.ponec.demo.service.HotelFacets;
+import net.ponec.demo.service.HotelFilter;
+import net.ponec.demo.service.HotelPage;
 import net.ponec.demo.service.HotelService;
+import net.ponec.demo.service.PageCursor;
+import net.ponec.demo.service.SearchRefinement;
 import org.ujorm.tools.web.Element;
 import org.ujorm.tools.web.Html;
 import org.ujorm.tools.web.ao.Column;
 import org.ujorm.tools.web.ao.HttpParameter;
 import org.ujorm.tools.web.report.ReportBuilder;
 import org.ujorm.tools.web.request.RContext;
+import org.ujorm.tools.web.table.GridBuilder;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static net.ponec.demo.servlet.HotelServlet.Attrib.*;
+import static net.ponec.demo.servlet.HotelServlet.Constants.CSS_GEO_INPUT;
 import static net.ponec.demo.servlet.HotelServlet.Constants.CSS_INPUT;
+import static net.ponec.demo.servlet.HotelServlet.Constants.CSS_RANGE_INPUT;
 import static net.ponec.demo.servlet.HotelServlet.Constants.DEFAULT_ROW_LIMIT;
 import static org.ujorm.tools.xml.AbstractWriter.NBSP;
 
@@ -41,7 +60,21 @@ import static org.ujorm.tools.xml.AbstractWriter.NBSP;
 @WebServlet("/hotels")
 public class HotelServlet extends AbstractServlet {
     /** A hotel service */
-    private final HotelService service = new HotelService();
+    private HotelService service;
+
+    public HotelServlet() {
+    }
+
+    /** A servlet with its own hotel service, e.g. for a benchmark without any servlet container */
+    public HotelServlet(HotelService service) {
+        this.service = service;
+    }
+
+    /** Take the shared service from the data registry */
+    @Override
+    public void init() throws ServletException {
+        service = getRegistry().getHotelService();
+    }
 
     /**
      * Handles the HTTP <code>GET</code> method.
@@ -50,44 +83,160 @@ public class HotelServlet extends AbstractServlet {
      */
     @Override
     protected void doGet(RContext context) {
+        printReport(context, getFilter(context), null);
+    }
+
+    /**
+     * Handles the HTTP <code>GET</code> method with a refinement of the user session.
+     *
+     * @param context servlet request context
+     * @param request servlet request
+     */
+    @Override
+    protected void doGet(RContext context, HttpServletRequest request) {
+        final HotelFilter filter = getFilter(context);
+        printReport(context, filter, getRefinement(request, filter));
+    }
 
-        new ReportBuilder<Hotel>("Common Hotel Report")
-                .addOrder("Ord.")
-                .add(Hotel::getName, "Hotel", NAME).sortable(true)
-                .add(hotel -> hotel.getCity().getName(), "City", CITY).sortable()
-                .add(Hotel::getStreet, "Street").sortable()
-                .add(Hotel::getPrice, "Price").sortable()
-                .add(Hotel::getCurrency, "Currency")
-                .add(Hotel::getPhone, "Phone")
+    /**
+     * Print the hotel report of the request parameters.
+     * @param context Request parameters and a writer
+     * @param filter A hotel filter of the request parameters
+     * @param refinement Matching rows of the previous search or {@code null}
+     */
+    public void printReport(RContext context, HotelFilter filter, SearchRefinement refinement) {
+        final PagedReportBuilder report = new PagedReportBuilder("Common Hotel Report");
+
+        report.addOrder("Ord.")
+                .add(HotelColumn.NAME, "Hotel", NAME).sortable(true)
+                .add(HotelColumn.CITY, "City", CITY).sortable()
+                .add(HotelColumn.STREET, "Street").sortable()
+                .add(HotelColumn.PRICE, "Price").sortable()
+                .add(HotelView::getCurrency, "Currency")
+                .add(HotelView::getPhone, "Phone")
                 .add(starColumn(), "Stars").sortable()
                 .addColumn(
                         (e, v) -> e.addLinkedText(v.getHomePage(), "link"), // Data
                         (e) -> e.addText("Home page", " ").addImage(Constants.HELP_IMG, "Help")) // Title
-                .setFormItem(e -> e.addTextInp(LIMIT, LIMIT.of(context), "Limit", CSS_INPUT, LIMIT))
+                .setFormItem(e -> {
+                    e.addTextInp(MIN_PRICE, MIN_PRICE.of(context), "Min price", CSS_INPUT, CSS_RANGE_INPUT, MIN_PRICE);
+                    e.addTextInp(MAX_PRICE, MAX_PRICE.of(context), "Max price", CSS_INPUT, CSS_RANGE_INPUT, MAX_PRICE);
+                    e.addTextInp(MIN_STARS, MIN_STARS.of(context), "Min stars", CSS_INPUT, CSS_RANGE_INPUT, MIN_STARS);
+                    e.addTextInp(LIMIT, LIMIT.of(context), "Limit", CSS_INPUT, LIMIT);
+                    e.addTextInp(LATITUDE, LATITUDE.of(context), "Latitude", CSS_INPUT, CSS_GEO_INPUT, LATITUDE);
+                    e.addTextInp(LONGITUDE, LONGITUDE.of(context), "Longitude", CSS_INPUT, CSS_GEO_INPUT, LONGITUDE);
+                    e.addTextInp(RADIUS, RADIUS.of(context), "Radius [km]", CSS_INPUT, CSS_GEO_INPUT, RADIUS);
+                })
                 .setFooter(e -> printFooter(e))
                 .setHtmlHeader(e -> e.addLink().setHref("/css/hotels.css").setAttr(Html.A_REL, "stylesheet"))
-                .setAjaxEnabled(true) // Default
-                .build(context, builder -> service.selectHotels(builder,
-                                LIMIT.of(context, DEFAULT_ROW_LIMIT),
-                                NAME.of(context),
-                                CITY.of(context)));
-    }
-
-    /** Create a column of hotel stars */
-    protected Column<Hotel> starColumn() {
-        return new Column<Hotel>() {
-            @Override
-            public void write(Element e, Hotel hotel) {
-                e.setAttribute(Html.A_TITLE, hotel.getStars()).setAttribute(Html.STYLE, "color: Gold");
-                Stream.generate(() -> "🟊" + NBSP).limit(Math.round(hotel.getStars()))
-                        .forEach(s -> e.addText(s));
-            }
-            /** Implement it for a sortable column only */
-            @Override
-            public Float apply(Hotel hotel) {
-                return hotel.getStars();
-            }
-        };
+                .setAjaxEnabled(true); // Default
+
+        final boolean fuzzy = isFuzzy(context);
+        final Double latitude = parseNumber(LATITUDE.of(context), -90.0, 90.0);
+        final Double longitude = parseNumber(LONGITUDE.of(context), -180.0, 180.0);
+        final boolean proximity = latitude != null && longitude != null;
+        if (!fuzzy && !proximity) { // Facets of other modes would count hotels out of the result
+            report.setFacets(page -> service.selectFacets(filter, refinement, page));
+        }
+        if (proximity) {
+            final Double radius = parseNumber(RADIUS.of(context), 0.0, Double.MAX_VALUE);
+            report.add(hotel -> distance(hotel, latitude, longitude), "Distance [km]");
+            report.buildPage(context, builder -> service.selectNearest(
+                                getRowLimit(context),
+                                filter,
+                                refinement,
+                                latitude,
+                                longitude,
+                                radius != null ? radius : Double.POSITIVE_INFINITY));
+        } else if (fuzzy) {
+            report.buildPage(context, builder -> service.selectFuzzy(builder,
+                                getRowLimit(context),
+                                filter));
+        } else {
+            report.buildPage(context, builder -> service.selectPage(builder,
+                                getRowLimit(context),
+                                filter,
+                                refinement,
+                                PageCursor.parse(CURSOR.of(context))));
+        }
+    }
+
+    /** Distance of the hotel city to the point in kilometers */
+    protected String distance(HotelView hotel, double latitude, double longitude) {
+        final City city = hotel.getCity();
+        return city != null && city.getLatitude() != null && city.getLongitude() != null
+                ? String.format("%.1f", GeoIndex.distanceKm(latitude, longitude, city.getLatitude(), city.getLongitude()))
+                : "";
+    }
+
+    /**
+     * Parse a number of a range.
+     * @return The {@code null} value for an empty or an invalid text.
+     */
+    protected Double parseNumber(String text, double min, double max) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            final double result = Double.parseDouble(text.trim());
+            return result >= min && result <= max ? result : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Is the name a fuzzy query? See the {@link Constants#FUZZY_MARK} */
+    protected boolean isFuzzy(RContext context) {
+        final String name = NAME.of(context);
+        return name != null && name.endsWith(Constants.FUZZY_MARK);
+    }
+
+    /**
+     * A hotel filter of the text patterns and value ranges, an invalid range value is ignored.
+     * The fuzzy mark of the name is removed.
+     */
+    protected HotelFilter getFilter(RContext context) {
+        final Double minPrice = parseNumber(MIN_PRICE.of(context), 0.0, Double.MAX_VALUE);
+        final Double maxPrice = parseNumber(MAX_PRICE.of(context), 0.0, Double.MAX_VALUE);
+        final Double minStars = parseNumber(MIN_STARS.of(context), 0.0, 5.0);
+        final String name = NAME.of(context);
+        return HotelFilter.of(isFuzzy(context) ? name.substring(0, name.length() - Constants.FUZZY_MARK.length()) : name,
+                        CITY.of(context))
+                .withPrice(minPrice != null ? BigDecimal.valueOf(minPrice) : null,
+                        maxPrice != null ? BigDecimal.valueOf(maxPrice) : null)
+                .withMinStars(minStars != null ? minStars.floatValue() : null);
+    }
+
+    /** Requested row limit bounded by the {@link Constants#MAX_ROW_LIMIT} */
+    protected int getRowLimit(RContext context) {
+        return Math.max(0, Math.min(LIMIT.of(context, DEFAULT_ROW_LIMIT), Constants.MAX_ROW_LIMIT));
+    }
+
+    /**
+     * Matching rows of the previous search of the user session.
+     * A session is created for a non-empty filter only, so a visitor without any search (e.g. a crawler) has no session.
+     * @return The {@code null} value for an empty filter.
+     */
+    protected SearchRefinement getRefinement(HttpServletRequest request, HotelFilter filter) {
+        if (filter.isEmpty()) {
+            return null;
+        }
+        final HttpSession session = request.getSession(true);
+        SearchRefinement result = (SearchRefinement) session.getAttribute(Constants.REFINEMENT);
+        if (result == null) {
+            result = new SearchRefinement();
+            session.setAttribute(Constants.REFINEMENT, result);
+        }
+        return result;
+    }
+
+    /** Create a sortable column of hotel stars */
+    protected Column<HotelView> starColumn() {
+        return HotelColumn.STARS.withWriter((e, hotel) -> {
+            e.setAttribute(Html.A_TITLE, hotel.getStars()).setAttribute(Html.STYLE, "color: Gold");
+            Stream.generate(() -> "🟊" + NBSP).limit(Math.round(hotel.getStars()))
+                    .forEach(s -> e.addText(s));
+        });
     }
 
     /**  Data are from hotelsbase.org, see the original license */
@@ -104,6 +253,20 @@ public class HotelServlet extends AbstractServlet {
     enum Attrib implements HttpParameter {
         NAME,
         CITY,
+        /** A keyset cursor of the required page, see the {@link PageCursor} */
+        CURSOR,
+        /** Min price of hotels */
+        MIN_PRICE,
+        /** Max price of hotels */
+        MAX_PRICE,
+        /** Min stars of hotels */
+        MIN_STARS,
+        /** Latitude of the point of a proximity search in degrees */
+        LATITUDE,
+        /** Longitude of the point of a proximity search in degrees */
+        LONGITUDE,
+        /** Max distance of a proximity search in kilometers */
+        RADIUS,
         LIMIT { @Override public String defaultValue() { return DEFAULT_ROW_LIMIT.toString(); }};
 
         @Override
@@ -113,21 +276,152 @@ public class HotelServlet extends AbstractServlet {
     }
 
     /**
-     * Handles the HTTP <code>GET</code> method.
+     * Handles the HTTP <code>POST</code> method.
      *
      * @param context servlet request context
+     * @param request servlet request
      */
     @Override
-    protected void doPost(final RContext context) {
-        doGet(context);
+    protected void doPost(final RContext context, final HttpServletRequest request) {
+        doGet(context, request);
+    }
+
+    /**
+     * A report builder with buttons of the previous and the next page and with facet counts in the table footer.
+     * The footer is a part of the table, so the AJAX response updates the buttons too.
+     * The facets are printed after the rows, so they don't delay the first rows.
+     * Rows are rendered straight from the page stream and the output is flushed by chunks of rows,
+     * a blocking write of a slow client pauses the rendering.
+     */
+    static class PagedReportBuilder extends ReportBuilder<HotelView> {
+        /** The last selected page */
+        private HotelPage page = HotelPage.EMPTY;
+        /** Facet counts of the current filter by the selected page */
+        private Function<HotelPage, HotelFacets> facets = page -> HotelFacets.EMPTY;
+
+        PagedReportBuilder(CharSequence title) {
+            super(title);
+        }
+
+        /** Facet counts of the current filter by the selected page */
+        public void setFacets(Function<HotelPage, HotelFacets> facets) {
+            this.facets = facets;
+        }
+
+        /** Build the report of one page */
+        public void buildPage(RContext context, Function<GridBuilder<HotelView>, HotelPage> resource) {
+            build(context, builder -> {
+                page = resource.apply(builder);
+                final ChunkFlusher flusher = new ChunkFlusher(context.writer(), Constants.FLUSH_ROWS);
+                return page.stream().takeWhile(hotel -> flusher.next());
+            });
+        }
+
+        @Override
+        protected void printTableBody(Element table, RContext context,
+                Function<GridBuilder<HotelView>, Stream<HotelView>> resource) {
+            super.printTableBody(table, context, resource);
+            try (Element footer = table.addElement("tfoot")) {
+                final Element cell = footer.addTableRow().addTableDetail()
+                        .setAttribute("colspan", getColumnSize());
+                printPageButton(cell, page.getPrevious(), "Previous");
+                cell.addText(" ");
+                printPageButton(cell, page.getNext(), "Next");
+                final HotelFacets counts = facets.apply(page);
+                final Element facetCell = footer.addTableRow().addTableDetail(Constants.CSS_FACETS)
+                        .setAttribute("colspan", getColumnSize());
+                printFacet(facetCell, "Cities", counts.getCities());
+                printFacet(facetCell, "Countries", counts.getCountries());
+                printFacet(facetCell, "Stars", counts.getStars());
+            }
+        }
+
+        /** Print the most frequent values of a facet */
+        protected void printFacet(Element parent, String label, List<HotelFacets.Value> values) {
+            if (values.isEmpty()) {
+                return;
+            }
+            parent.addDiv().addText(label, ": ", values.stream()
+                    .limit(Constants.FACET_LIMIT)
+                    .map(HotelFacets.Value::toString)
+                    .collect(Collectors.joining(", ")),
+                    values.size() > Constants.FACET_LIMIT ? ", …" : "");
+        }
+
+        /** Print a submit button of the page, a missing page has a disabled button */
+        protected void printPageButton(Element parent, PageCursor cursor, String label) {
+            final Element button = parent.addButton(Constants.CSS_PAGE_BUTTON)
+                    .setType("submit")
+                    .setName(CURSOR.toString())
+                    .setValue(cursor != null ? cursor : "");
+            if (cursor == null) {
+                button.setAttribute("disabled");
+            }
+            button.addText(label);
+        }
+    }
+
+    /** Flush an output after each chunk of rows */
+    static final class ChunkFlusher {
+        private final Appendable writer;
+        private final int chunkSize;
+        private int count;
+
+        ChunkFlusher(Appendable writer, int chunkSize) {
+            this.writer = writer;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Count the next row and flush the previous chunk.
+         * @return The {@code false} value if the client has closed the connection.
+         */
+        boolean next() {
+            final boolean flush = count > 0 && count % chunkSize == 0;
+            count++;
+            return !flush || flush();
+        }
+
+        /** Flush the writer, the {@code false} value means a closed connection */
+        private boolean flush() {
+            if (writer instanceof PrintWriter) {
+                return !((PrintWriter) writer).checkError(); // It flushes the writer
+            }
+            if (writer instanceof Flushable) {
+                try {
+                    ((Flushable) writer).flush();
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
     /** Servlet constants */
     static class Constants {
         /** Row limit */
         static final Integer DEFAULT_ROW_LIMIT = 15;
+        /** Hard cap of the row limit, see the system property {@code ajax-demo.row.limit} */
+        static final int MAX_ROW_LIMIT = Integer.getInteger("ajax-demo.row.limit", 10_000);
+        /** Row count of a flushed chunk */
+        static final int FLUSH_ROWS = 100;
+        /** Session attribute of the search refinement */
+        static final String REFINEMENT = SearchRefinement.class.getName();
         /** CSS for inputs */
         static final String CSS_INPUT = "form-control";
+        /** CSS for inputs of a proximity search */
+        static final String CSS_GEO_INPUT = "geo";
+        /** CSS for inputs of value ranges */
+        static final String CSS_RANGE_INPUT = "range";
+        /** CSS for facet counts */
+        static final String CSS_FACETS = "facets";
+        /** A name ending with the mark is a typo-tolerant query */
+        static final String FUZZY_MARK = "~";
+        /** Max count of printed values of one facet */
+        static final int FACET_LIMIT = 8;
+        /** CSS for page buttons */
+        static final String CSS_PAGE_BUTTON = "page";
         /** Help image */
         static final String HELP_IMG = "images/help.png";
         /** Data license */
@@ -15,7 +15,8 @@
  */
 package net.ponec.demo.servlet;
 
-import net.ponec.demo.model.Hotel;
+import net.ponec.demo.model.HotelView;
+import net.ponec.demo.service.HotelColumn;
 import net.ponec.demo.service.HotelService;
 import org.ujorm.tools.web.ao.HttpParameter;
 import org.ujorm.tools.web.report.ReportBuilder;
@@ -37,7 +38,13 @@ import static net.ponec.demo.servlet.PlainHotelServlet.Constants.HOTELBASE;
 @WebServlet("/plainHotels")
 public class PlainHotelServlet extends AbstractServlet {
     /** A hotel service */
-    private final HotelService service = new HotelService();
+    private HotelService service;
+
+    /** Take the shared service from the data registry */
+    @Override
+    public void init() throws ServletException {
+        service = getRegistry().getHotelService();
+    }
 
     /**
      * Handles the HTTP <code>GET</code> method.
@@ -47,14 +54,14 @@ public class PlainHotelServlet extends AbstractServlet {
     @Override
     protected void doGet(RContext context) {
 
-        new ReportBuilder<Hotel>("Simple Hotel Report")
-                .add(hotel -> hotel.getName(), "Hotel", NAME).sortable(true)
-                .add(hotel -> hotel.getCity().getName(), "City", CITY).sortable()
-                .add(hotel -> hotel.getStreet(), "Street").sortable()
-                .add(hotel -> hotel.getPrice(), "Price").sortable()
+        new ReportBuilder<HotelView>("Simple Hotel Report")
+                .add(HotelColumn.NAME, "Hotel", NAME).sortable(true)
+                .add(HotelColumn.CITY, "City", CITY).sortable()
+                .add(HotelColumn.STREET, "Street").sortable()
+                .add(HotelColumn.PRICE, "Price").sortable()
                 .add(hotel -> hotel.getCurrency(), "Currency")
                 .add(hotel -> hotel.getPhone(), "Phone")
-                .add(hotel -> hotel.getStars(), "Stars").sortable()
+                .add(HotelColumn.STARS, "Stars").sortable()
                 .setFooter(e -> e.addText("Data source: ").addLinkedText(HOTELBASE, HOTELBASE))
                 .build(context, builder -> service.selectHotels(builder,
                                 DEFAULT_ROW_LIMIT,
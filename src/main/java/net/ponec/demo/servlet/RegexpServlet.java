@@ -45,7 +45,13 @@ public class RegexpServlet extends AbstractServlet {
     /** Logger */
     private static final Logger LOGGER = Logger.getLogger(RegexpServlet.class.getName());
     /** A service */
-    private final RegexpService service = new RegexpService();
+    private RegexpService service;
+
+    /** Take the shared service from the data registry */
+    @Override
+    public void init() throws ServletException {
+        service = getRegistry().getRegexpService();
+    }
 
     /**
      * Handles the HTTP <code>GET</code> method.
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec/demo-ajax
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.servlet;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves static assets with a short-lived cache and an ETag, so a client revalidates an asset by a cheap request.
+ * The ETag comes from the size and the last modification of the asset,
+ * a local file is checked on each request, so an edited asset gets a new ETag without a redeploy.
+ * A client accepting the gzip encoding gets a variant precompressed at build time
+ * (a resource with the {@code .gz} suffix), if it exists and it is not older than the asset.
+ * A missing asset is passed to the default servlet.
+ *
+ * @author Pavel Ponec
+ */
+@WebFilter("/css/*")
+public class StaticAssetFilter implements Filter {
+
+    /** Max age of a cached asset in seconds, the asset URLs are not versioned */
+    static final long MAX_AGE = TimeUnit.MINUTES.toSeconds(10);
+    /** Suffix of a precompressed resource */
+    static final String GZIP_SUFFIX = ".gz";
+
+    /** Metadata of assets by the path */
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    /** Servlet context */
+    private ServletContext context;
+
+    @Override
+    public void init(FilterConfig config) {
+        this.context = config.getServletContext();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        final HttpServletRequest httpRequest = (HttpServletRequest) request;
+        final HttpServletResponse httpResponse = (HttpServletResponse) response;
+        final String method = httpRequest.getMethod();
+        final Asset asset = "GET".equals(method) || "HEAD".equals(method)
+                ? getAsset(getPath(httpRequest))
+                : null;
+        if (asset == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final boolean gzip = asset.gzipUrl != null
+                && CompressionFilter.acceptsGzip(httpRequest.getHeader("Accept-Encoding"));
+        final String etag = gzip ? asset.gzipEtag : asset.etag;
+        httpResponse.setHeader("Cache-Control", "public, max-age=" + MAX_AGE + ", must-revalidate");
+        httpResponse.setHeader("ETag", etag);
+        httpResponse.addHeader("Vary", "Accept-Encoding");
+        if (CompressionFilter.isNotModified(httpRequest.getHeader("If-None-Match"), etag)) {
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        final URLConnection connection = (gzip ? asset.gzipUrl : asset.url).openConnection();
+        final long length = connection.getContentLengthLong();
+        if (gzip) {
+            httpResponse.setHeader("Content-Encoding", "gzip");
+        }
+        if (asset.contentType != null) {
+            httpResponse.setContentType(asset.contentType);
+        }
+        if (length >= 0) {
+            httpResponse.setContentLengthLong(length);
+        }
+        try (InputStream input = connection.getInputStream()) {
+            if (!"HEAD".equals(method)) {
+                final OutputStream output = httpResponse.getOutputStream();
+                final byte[] buffer = new byte[8 * 1024];
+                for (int count; (count = input.read(buffer)) >= 0; ) {
+                    output.write(buffer, 0, count);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        assets.clear();
+    }
+
+    /** Path of the request inside the web application */
+    @NotNull
+    private static String getPath(@NotNull HttpServletRequest request) {
+        final String pathInfo = request.getPathInfo();
+        return pathInfo != null ? request.getServletPath() + pathInfo : request.getServletPath();
+    }
+
+    /**
+     * Returns a current asset metadata or {@code null} for a missing resource.
+     * A cached metadata of a local file is replaced after a change of the file.
+     */
+    @Nullable
+    private Asset getAsset(@NotNull String path) throws IOException {
+        if (path.endsWith(GZIP_SUFFIX) || path.contains("..")) {
+            return null;
+        }
+        final Asset cached = assets.get(path);
+        if (cached != null && cached.isCurrent()) {
+            return cached;
+        }
+        final URL url = context.getResource(path);
+        if (url == null) {
+            assets.remove(path);
+            return null;
+        }
+        final String version = version(url);
+        URL gzipUrl = context.getResource(path + GZIP_SUFFIX);
+        if (gzipUrl != null && lastModified(gzipUrl) < lastModified(url)) {
+            gzipUrl = null; // An outdated variant
+        }
+        final Asset result = new Asset(url, gzipUrl, version, context.getMimeType(path));
+        assets.put(path, result);
+        return result;
+    }
+
+    /** A version of the resource from its size and its last modification */
+    @NotNull
+    static String version(@NotNull URL url) throws IOException {
+        final Path file = localFile(url);
+        if (file != null) {
+            return Long.toString(Files.size(file), 36) + '-'
+                    + Long.toString(Files.getLastModifiedTime(file).toMillis(), 36);
+        }
+        final URLConnection connection = url.openConnection();
+        try (InputStream ignored = connection.getInputStream()) {
+            return Long.toString(connection.getContentLengthLong(), 36) + '-'
+                    + Long.toString(connection.getLastModified(), 36);
+        }
+    }
+
+    /** The last modification of the resource */
+    private static long lastModified(@NotNull URL url) throws IOException {
+        final Path file = localFile(url);
+        if (file != null) {
+            return Files.getLastModifiedTime(file).toMillis();
+        }
+        final URLConnection connection = url.openConnection();
+        try (InputStream ignored = connection.getInputStream()) {
+            return connection.getLastModified();
+        }
+    }
+
+    /** A local file of the URL or {@code null} */
+    @Nullable
+    private static Path localFile(@NotNull URL url) {
+        try {
+            return "file".equals(url.getProtocol()) ? Paths.get(url.toURI()) : null;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Metadata of a static asset */
+    private static final class Asset {
+        final URL url;
+        /** URL of the precompressed variant or {@code null} */
+        final URL gzipUrl;
+        /** Version of the resource */
+        final String version;
+        final String etag;
+        final String gzipEtag;
+        final String contentType;
+
+        Asset(URL url, @Nullable URL gzipUrl, String version, @Nullable String contentType) {
+            this.url = url;
+            this.gzipUrl = gzipUrl;
+            this.version = version;
+            this.etag = '"' + version + '"';
+            this.gzipEtag = '"' + version + "-gz\"";
+            this.contentType = contentType;
+        }
+
+        /** Is the metadata current? A resource of an archive can't be changed without a redeploy. */
+        boolean isCurrent() throws IOException {
+            return localFile(url) == null || version.equals(version(url));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the read-only unknown city.
+ *
+ * @author Pavel Ponec
+ */
+public class CityTest {
+
+    @Test
+    public void testUnknown() {
+        assertThrows(UnsupportedOperationException.class, () -> City.UNKNOWN.setId(1));
+        assertThrows(UnsupportedOperationException.class, () -> City.UNKNOWN.setName("Praha"));
+        assertThrows(UnsupportedOperationException.class, () -> City.UNKNOWN.setCountry("CZ"));
+        assertThrows(UnsupportedOperationException.class, () -> City.UNKNOWN.setCountryName("Czechia"));
+        assertThrows(UnsupportedOperationException.class, () -> City.UNKNOWN.setLatitude(50f));
+        assertThrows(UnsupportedOperationException.class, () -> City.UNKNOWN.setLongitude(14f));
+        assertNull(City.UNKNOWN.getId());
+        assertNull(City.UNKNOWN.getName());
+        assertNull(City.UNKNOWN.getLatitude());
+
+        final City city = new City();
+        city.setName("Praha");
+        assertEquals("Praha", city.getName());
+    }
+}
@@ -0,0 +1,181 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.Hotel;
+import net.ponec.demo.model.HotelView;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the binary snapshot format.
+ *
+ * @author Pavel Ponec
+ */
+public class BinarySnapshotTest {
+
+    /** A stamp of CSV sources */
+    private static final long STAMP = 123456789L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final City prague = city(1, "Praha", "CZ", "Czech Republic", 50.08f, 14.43f);
+        final City unknown = city(2, "Ñowhere", null, null, null, null);
+        final List<Hotel> hotels = Arrays.asList(
+                hotel("Hotel A", prague, new BigDecimal("12.50"), 4.5f, true),
+                hotel("Hotel B", unknown, null, null, false),
+                hotel("Hotel C", null, new BigDecimal("-1"), 0f, null));
+        hotels.get(1).setId(42L);
+        final HotelSnapshot expected = HotelSnapshot.of(hotels.stream());
+        final Path file = dir.resolve("snapshot.bin");
+        BinarySnapshot.write(file, STAMP, Arrays.asList(prague, unknown), expected);
+
+        final BinarySnapshot snapshot = BinarySnapshot.read(file, STAMP);
+        assertNotNull(snapshot);
+        assertEquals(Arrays.asList(1, 2), List.copyOf(snapshot.getCityMap().keySet()));
+        assertCity(prague, snapshot.getCityMap().get(1));
+        assertCity(unknown, snapshot.getCityMap().get(2));
+        assertSnapshot(expected, snapshot.getHotelSnapshot());
+        assertEquals(Long.valueOf(42L), snapshot.getHotelSnapshot().getHotel(1).getId());
+        assertNull(snapshot.getHotelSnapshot().getHotel(0).getId());
+        assertSame(City.UNKNOWN, snapshot.getHotelSnapshot().getTable().getCity(2));
+        assertTrue(snapshot.getHotelSnapshot().getVersion() > expected.getVersion(), "A read snapshot is a new version");
+    }
+
+    /** Columns and strings longer than the IO buffer */
+    @Test
+    public void testLargeTable() throws IOException {
+        final City prague = city(1, "Praha", "CZ", "Czech Republic", 50.08f, 14.43f);
+        final Random random = new Random(5);
+        final List<Hotel> hotels = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            hotels.add(hotel("Hotel " + random.nextInt(1_000), i % 3 == 0 ? null : prague,
+                    i % 7 == 0 ? null : BigDecimal.valueOf(random.nextInt(100_000), 2),
+                    i % 5 == 0 ? null : (float) random.nextInt(6), i % 2 == 0));
+        }
+        hotels.get(7).setNote("x".repeat(200_000));
+        final HotelSnapshot expected = HotelSnapshot.of(hotels.stream());
+        final Path file = dir.resolve("snapshot.bin");
+        BinarySnapshot.write(file, STAMP, List.of(prague), expected);
+
+        final BinarySnapshot snapshot = BinarySnapshot.read(file, STAMP);
+        assertNotNull(snapshot);
+        assertSnapshot(expected, snapshot.getHotelSnapshot());
+    }
+
+    @Test
+    public void testRejected() throws IOException {
+        final Path file = dir.resolve("snapshot.bin");
+        assertNull(BinarySnapshot.read(file, STAMP), "A missing file");
+
+        final City city = city(1, "Praha", "CZ", "Czech Republic", 50.08f, 14.43f);
+        BinarySnapshot.write(file, STAMP, List.of(city),
+                HotelSnapshot.of(Stream.of(hotel("Hotel A", city, BigDecimal.TEN, 3f, true))));
+        final byte[] bytes = Files.readAllBytes(file);
+        assertNotNull(BinarySnapshot.read(file, STAMP));
+        assertNull(BinarySnapshot.read(file, STAMP + 1), "An outdated stamp");
+
+        for (int i = 0; i < bytes.length; i++) {
+            final byte[] damaged = bytes.clone();
+            damaged[i] ^= 0x10;
+            Files.write(file, damaged);
+            assertNull(BinarySnapshot.read(file, STAMP), "A damaged byte " + i);
+        }
+        for (int length : new int[]{0, 10, bytes.length - 1}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertNull(BinarySnapshot.read(file, STAMP), "A truncated file " + length);
+        }
+        Files.write(file, Arrays.copyOf(bytes, bytes.length + 1));
+        assertNull(BinarySnapshot.read(file, STAMP), "An extended file");
+    }
+
+    /** Compare all values and orders of two snapshots */
+    private static void assertSnapshot(HotelSnapshot expected, HotelSnapshot snapshot) {
+        assertEquals(expected.size(), snapshot.size());
+        final HotelTable expectedTable = expected.getTable();
+        final HotelTable table = snapshot.getTable();
+        for (int row = 0; row < expected.size(); row++) {
+            final HotelView expectedHotel = expected.getHotel(row);
+            final HotelView hotel = snapshot.getHotel(row);
+            assertEquals(expectedHotel.getId(), hotel.getId());
+            assertEquals(expectedHotel.getName(), hotel.getName());
+            assertEquals(expectedHotel.getNote(), hotel.getNote());
+            assertEquals(expectedHotel.getStreet(), hotel.getStreet());
+            assertEquals(expectedHotel.getPhone(), hotel.getPhone());
+            assertEquals(expectedHotel.getHomePage(), hotel.getHomePage());
+            assertEquals(expectedHotel.getCurrency(), hotel.getCurrency());
+            assertEquals(expectedHotel.getPrice(), hotel.getPrice());
+            assertEquals(expectedHotel.getStars(), hotel.getStars());
+            assertEquals(expectedHotel.getActive(), hotel.getActive());
+            assertEquals(expectedHotel.getCityName(), hotel.getCityName());
+            assertEquals(expectedTable.getCityId(row), table.getCityId(row));
+            assertEquals(expectedTable.getCountryCode(row), table.getCountryCode(row));
+            assertCity(expectedTable.getCity(row), table.getCity(row));
+        }
+        for (HotelColumn column : HotelColumn.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                assertArrayEquals(expected.sortedRows(column, descending).toArray(),
+                        snapshot.sortedRows(column, descending).toArray(), column + " " + descending);
+                for (int row = 0; row < expected.size(); row++) {
+                    assertEquals(expected.position(column, descending, row), snapshot.position(column, descending, row));
+                }
+            }
+        }
+        for (String pattern : new String[]{"hotel", "otel 1", "ho", "xyz", "praha", "hotel a"}) {
+            assertArrayEquals(expected.selectRows(HotelFilter.of(pattern, "")).toArray(),
+                    snapshot.selectRows(HotelFilter.of(pattern, "")).toArray(), pattern);
+            assertArrayEquals(expected.selectRows(HotelFilter.of("", pattern)).toArray(),
+                    snapshot.selectRows(HotelFilter.of("", pattern)).toArray(), pattern);
+            assertArrayEquals(expected.getFuzzyNameIndex().search(pattern),
+                    snapshot.getFuzzyNameIndex().search(pattern), pattern);
+        }
+    }
+
+    private static void assertCity(City expected, City city) {
+        assertEquals(expected.getId(), city.getId());
+        assertEquals(expected.getName(), city.getName());
+        assertEquals(expected.getCountry(), city.getCountry());
+        assertEquals(expected.getCountryName(), city.getCountryName());
+        assertEquals(expected.getLatitude(), city.getLatitude());
+        assertEquals(expected.getLongitude(), city.getLongitude());
+    }
+
+    private static City city(int id, String name, String country, String countryName, Float latitude, Float longitude) {
+        final City result = new City();
+        result.setId(id);
+        result.setName(name);
+        result.setCountry(country);
+        result.setCountryName(countryName);
+        result.setLatitude(latitude);
+        result.setLongitude(longitude);
+        return result;
+    }
+
+    private static Hotel hotel(String name, City city, BigDecimal price, Float stars, Boolean active) {
+        final Hotel result = new Hotel();
+        result.setName(name);
+        result.setNote(active != null ? "A note of " + name : null);
+        result.setCity(city);
+        result.setStreet("Street of " + name);
+        result.setPhone(active == Boolean.TRUE ? "+420 123" : null);
+        result.setHomePage("https://example.com/" + name.replace(' ', '-'));
+        result.setPrice(price);
+        result.setCurrency(price != null ? "EUR" : null);
+        result.setStars(stars);
+        result.setActive(active);
+        return result;
+    }
+}
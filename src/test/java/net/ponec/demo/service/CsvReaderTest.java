@@ -0,0 +1,126 @@
+package net.ponec.demo.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the CSV reader.
+ *
+ * @author Pavel Ponec
+ */
+public class CsvReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testRows() throws IOException {
+        final String csv = "* A comment; with a delimiter\n"
+                + "Id;Name;Price;Active\r\n"
+                + "1;\"Hotel; Praha\";12.50;TRUE;;\r\n"
+                + "2;Hôtel Ñ;-0.5;false\n"
+                + "\n"
+                + "3;\"Quoted\";+3;true"; // No line end
+        try (CsvReader reader = CsvReader.of(write("rows.csv", csv), "Id;")) {
+            assertTrue(reader.next());
+            assertEquals(5, reader.getColumnCount(), "Trailing empty columns are ignored");
+            assertEquals(1, reader.getInt(0));
+            assertEquals("\"Hotel", reader.getString(1), "Quotes are a plain text");
+            assertEquals(" Praha\"", reader.getString(2));
+            assertEquals("TRUE", reader.getString(4), "No carriage return");
+            assertTrue(reader.getBoolean(4));
+
+            assertTrue(reader.next());
+            assertEquals(4, reader.getColumnCount());
+            assertEquals("Hôtel Ñ", reader.getString(1));
+            assertEquals(new BigDecimal("-0.5"), reader.getDecimal(2));
+            assertEquals(-0.5f, reader.getFloat(2));
+            assertFalse(reader.getBoolean(3));
+
+            assertTrue(reader.next());
+            assertEquals(0, reader.getColumnCount(), "An empty row");
+
+            assertTrue(reader.next());
+            assertEquals("\"Quoted\"", reader.getString(1));
+            assertEquals(new BigDecimal("3"), reader.getDecimal(2));
+            assertEquals("true", reader.getString(3));
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        final String csv = "12.50;0.1;1e3;1234567890123456789;-42;12345678901234567890.5;x\n";
+        try (CsvReader reader = CsvReader.of(write("numbers.csv", csv), "")) {
+            assertTrue(reader.next());
+            assertEquals(new BigDecimal("12.50"), reader.getDecimal(0), "The scale is kept");
+            assertEquals(12.5f, reader.getFloat(0));
+            assertEquals(0.1f, reader.getFloat(1));
+            assertEquals(new BigDecimal("1e3"), reader.getDecimal(2));
+            assertEquals(1000f, reader.getFloat(2));
+            assertEquals(1234567890123456789L, reader.getLong(3));
+            assertThrows(NumberFormatException.class, () -> reader.getInt(3));
+            assertEquals(-42, reader.getInt(4));
+            assertEquals(new BigDecimal("12345678901234567890.5"), reader.getDecimal(5));
+            assertThrows(NumberFormatException.class, () -> reader.getLong(6));
+            assertThrows(NumberFormatException.class, () -> reader.getDecimal(6));
+        }
+    }
+
+    @Test
+    public void testBufferBoundaries() throws IOException {
+        final StringBuilder csv = new StringBuilder("Id;Name;Price\r\n");
+        int rows = 0;
+        while (csv.length() < 1 << 20) { // Many buffer fills
+            csv.append(rows).append(";Hotel ").append(rows).append(';').append(rows).append(".25\r\n");
+            rows++;
+        }
+        // A long row over the read buffer:
+        csv.append(rows++).append(';').append("x".repeat(200_000)).append(";1\r\n");
+        csv.append("\n\n");
+
+        try (CsvReader reader = CsvReader.of(write("data.csv", csv.toString()), "Id;")) {
+            for (int row = 0; row < rows - 1; row++) {
+                assertTrue(reader.next());
+                assertEquals(row, reader.getInt(0));
+                assertEquals("Hotel " + row, reader.getString(1));
+                assertEquals(BigDecimal.valueOf(row * 100L + 25, 2), reader.getDecimal(2));
+            }
+            assertTrue(reader.next());
+            assertEquals(200_000, reader.getString(1).length());
+            assertEquals(1, reader.getInt(2));
+            while (reader.next()) {
+                assertEquals(0, reader.getColumnCount(), "Empty rows only");
+            }
+        }
+    }
+
+    @Test
+    public void testRewrittenFile() throws IOException {
+        final URL url = write("rewritten.csv", "1;A\n2;B\n3;C\n".repeat(100_000));
+        try (CsvReader reader = CsvReader.of(url, "")) {
+            assertTrue(reader.next());
+            Files.write(Paths.get(URI.create(url.toString())), "9;Z\n".getBytes(StandardCharsets.UTF_8));
+            while (reader.next()) { // A truncated file is no JVM error
+                assertTrue(reader.getColumnCount() <= 2);
+            }
+        }
+    }
+
+    /** Write the UTF-8 content to a file */
+    private URL write(String name, String content) throws IOException {
+        final Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toUri().toURL();
+    }
+}
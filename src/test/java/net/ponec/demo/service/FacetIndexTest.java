@@ -0,0 +1,144 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.HotelView;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of facet counts against a brute-force count.
+ *
+ * @author Pavel Ponec
+ */
+public class FacetIndexTest {
+
+    /** Max row count of a row-list value of 2048 to 2079 rows, see the {@code FacetIndex.DENSE_RATIO} */
+    private static final int RARE_MAX = 64;
+
+    @Test
+    public void testCount() {
+        final Random random = new Random(1);
+        // The value 0 has just the max count of a row list, the value 1 has a bitmap by one more row:
+        final int size = RARE_MAX * 32 + 31;
+        final int[] values = new int[size];
+        for (int row = 0; row < size; row++) {
+            values[row] = 2 + random.nextInt(8);
+        }
+        for (int row = 0; row < RARE_MAX; row++) {
+            values[row * 32] = 0;
+        }
+        for (int row = 0; row <= RARE_MAX; row++) {
+            values[row * 32 + 1] = 1;
+        }
+        values[63] = 9;
+        values[size - 1] = 9;
+        final FacetIndex facet = new FacetIndex(size, row -> values[row], labels(11));
+        assertEquals("FacetIndex{values=11, cost=361}", facet.toString(), "Nine bitmaps and 64 listed rows");
+
+        assertArrayEquals(count(values, null, 11), facet.count(null, null));
+        for (double ratio : new double[]{0.0, 0.001, 0.01, 0.1, 0.5, 0.9, 1.0}) {
+            for (int test = 0; test < 5; test++) {
+                final int[] selection = IntStream.range(0, size).filter(row -> random.nextDouble() < ratio).toArray();
+                final int[] expected = count(values, selection, 11);
+                final String message = "Ratio: " + ratio + ", rows: " + selection.length;
+                assertArrayEquals(expected, facet.count(selection, null), message);
+                assertArrayEquals(expected, facet.count(selection, FacetIndex.bitmap(selection, size)), message);
+            }
+        }
+        final int[] bounds = {0, 63, 64, size - 1};
+        assertArrayEquals(count(values, bounds, 11), facet.count(bounds, FacetIndex.bitmap(bounds, size)));
+    }
+
+    @Test
+    public void testEmpty() {
+        final FacetIndex facet = new FacetIndex(0, row -> 0, labels(1));
+        assertArrayEquals(new int[1], facet.count(null, null));
+        assertArrayEquals(new int[1], facet.count(new int[0], FacetIndex.bitmap(new int[0], 0)));
+    }
+
+    @Test
+    public void testSnapshotFacets() {
+        final Random random = new Random(2);
+        final HotelSnapshot snapshot = HotelSnapshotTest.snapshot(random, 3_000);
+        final int threshold = snapshot.size() >>> 6;
+        assertFacets(snapshot, null, snapshot.facets(null));
+        for (int length : new int[]{0, 1, threshold - 1, threshold, threshold + 1, threshold * 4, snapshot.size()}) {
+            final int[] selection = IntStream.range(0, snapshot.size())
+                    .filter(row -> random.nextInt(snapshot.size()) < length)
+                    .toArray();
+            assertFacets(snapshot, selection, snapshot.facets(selection));
+        }
+    }
+
+    @Test
+    public void testSelectFacets() {
+        final HotelService service = HotelServiceTest.service(HotelSnapshotTest.snapshot(new Random(3), 3_000));
+        final HotelSnapshot snapshot = service.getSnapshot();
+        for (HotelFilter filter : new HotelFilter[]{HotelFilter.ALL, HotelFilter.of("hotel 1", ""),
+                HotelFilter.of("hotel 12", "brno"), HotelFilter.of("hotel 123", ""), HotelFilter.of("", "zzz")}) {
+            final int[] selection = filter.isEmpty() ? null : IntStream.range(0, snapshot.size())
+                    .filter(row -> HotelSnapshot.normalize(snapshot.getHotel(row).getName()).contains(filter.getName()))
+                    .filter(row -> HotelSnapshot.normalize(snapshot.getHotel(row).getCityName()).contains(filter.getCity()))
+                    .toArray();
+            final HotelPage page = service.selectPage(HotelColumn.NAME, false, 10, filter, null, null);
+            // The second call reads the query cache:
+            for (int call = 0; call < 2; call++) {
+                assertFacets(snapshot, selection, service.selectFacets(filter, null, page));
+            }
+        }
+    }
+
+    /** Compare facets of the snapshot with a brute-force count */
+    private static void assertFacets(HotelSnapshot snapshot, int[] selection, HotelFacets facets) {
+        final Map<String, Integer> cities = new HashMap<>();
+        final Map<String, Integer> countries = new HashMap<>();
+        final Map<String, Integer> stars = new HashMap<>();
+        final int[] rows = selection != null ? selection : IntStream.range(0, snapshot.size()).toArray();
+        for (int row : rows) {
+            final HotelView hotel = snapshot.getHotel(row);
+            final boolean hasCity = hotel.getCityName() != null;
+            cities.merge(hasCity ? hotel.getCityName() + ", " + hotel.getCity().getCountry() : "?", 1, Integer::sum);
+            countries.merge(hasCity ? hotel.getCity().getCountry() : "?", 1, Integer::sum);
+            stars.merge(hotel.getStars() != null ? String.valueOf(Math.min(5, hotel.getStars().intValue())) : "?",
+                    1, Integer::sum);
+        }
+        assertEquals(snapshot.getVersion(), facets.getVersion());
+        assertValues(cities, facets.getCities());
+        assertValues(countries, facets.getCountries());
+        assertValues(stars, facets.getStars());
+    }
+
+    /** Compare non-zero counts, the values are sorted by the descending count */
+    private static void assertValues(Map<String, Integer> expected, List<HotelFacets.Value> values) {
+        final Map<String, Integer> result = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            assertNull(result.put(values.get(i).getLabel(), values.get(i).getCount()), "A unique label");
+            assertTrue(i == 0 || values.get(i - 1).getCount() >= values.get(i).getCount(), "Descending counts");
+        }
+        assertEquals(expected, result);
+    }
+
+    /** A brute-force count of values of the selection or of all rows */
+    private static int[] count(int[] values, int[] selection, int labelCount) {
+        final int[] result = new int[labelCount];
+        if (selection == null) {
+            for (int value : values) {
+                result[value]++;
+            }
+        } else {
+            for (int row : selection) {
+                result[values[row]]++;
+            }
+        }
+        return result;
+    }
+
+    private static String[] labels(int count) {
+        return IntStream.range(0, count).mapToObj(String::valueOf).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,135 @@
+package net.ponec.demo.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the fuzzy search against a brute-force Levenshtein distance of all words.
+ *
+ * @author Pavel Ponec
+ */
+public class FuzzyIndexTest {
+
+    /** A small alphabet makes many similar words */
+    private static final String LETTERS = "abcde";
+
+    @Test
+    public void testSearch() {
+        final Random random = new Random(3);
+        final String[] keys = new String[2_000];
+        for (int row = 0; row < keys.length; row++) {
+            if (row % 100 != 0) {
+                final StringBuilder key = new StringBuilder();
+                for (int i = random.nextInt(3); i >= 0; i--) {
+                    key.append(word(random)).append(i % 2 == 0 ? " " : "-");
+                }
+                keys[row] = key.toString();
+            }
+        }
+        final FuzzyIndex index = FuzzyIndex.of(keys);
+
+        for (int test = 0; test < 300; test++) {
+            final String query = test % 3 == 0
+                    ? word(random)
+                    : word(random) + (test % 3 == 1 ? " " : ", ") + word(random);
+            assertArrayEquals(bruteForce(keys, query), index.search(query), "Query: " + query);
+        }
+    }
+
+    @Test
+    public void testQueries() {
+        final FuzzyIndex index = FuzzyIndex.of(new String[]{"grand hotel praha", null, "hotel prague", "praha"});
+        assertEquals(0, index.search("").length);
+        assertEquals(0, index.search(" - ").length);
+        assertEquals(0, index.search("berlin").length);
+        assertArrayEquals(new int[][]{{0, 3}}, index.search("praha"));
+        assertArrayEquals(new int[][]{{0, 3}}, index.search("praha praha"), "Duplicate words");
+        assertArrayEquals(new int[][]{{}, {2}}, index.search("prage"));
+        assertArrayEquals(new int[][]{{}, {}, {0}}, index.search("hotell prahaa"));
+        assertEquals(0, FuzzyIndex.of(new String[0]).search("praha").length);
+    }
+
+    @Test
+    public void testDistance() {
+        final Random random = new Random(5);
+        for (int test = 0; test < 1_000; test++) {
+            final String word1 = random.nextInt(10) == 0 ? "" : word(random);
+            final String word2 = word(random);
+            assertEquals(levenshtein(word1, word2), FuzzyIndex.distance(word1.toCharArray(), word2.toCharArray()));
+        }
+    }
+
+    /** Rows grouped by the sum of the least distances of query words */
+    private static int[][] bruteForce(String[] keys, String query) {
+        final Set<String> queryWords = words(query);
+        final List<List<Integer>> groups = new ArrayList<>();
+        for (int row = 0; row < keys.length; row++) {
+            if (keys[row] == null) {
+                continue;
+            }
+            final Set<String> rowWords = words(keys[row]);
+            int sum = 0;
+            for (String queryWord : queryWords) {
+                final int least = rowWords.stream()
+                        .mapToInt(word -> levenshtein(queryWord, word))
+                        .min()
+                        .orElse(Integer.MAX_VALUE);
+                if (least > FuzzyIndex.maxDistance(queryWord.length())) {
+                    sum = -1;
+                    break;
+                }
+                sum += least;
+            }
+            if (sum >= 0) {
+                while (groups.size() <= sum) {
+                    groups.add(new ArrayList<>());
+                }
+                groups.get(sum).add(row);
+            }
+        }
+        return groups.stream()
+                .map(rows -> rows.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    private static Set<String> words(String text) {
+        final Set<String> result = new LinkedHashSet<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    /** The Levenshtein distance by the full matrix */
+    private static int levenshtein(String word1, String word2) {
+        final int[][] matrix = new int[word1.length() + 1][word2.length() + 1];
+        for (int i = 0; i <= word1.length(); i++) {
+            for (int j = 0; j <= word2.length(); j++) {
+                if (i == 0 || j == 0) {
+                    matrix[i][j] = i + j;
+                } else {
+                    matrix[i][j] = Math.min(Math.min(matrix[i - 1][j] + 1, matrix[i][j - 1] + 1),
+                            matrix[i - 1][j - 1] + (word1.charAt(i - 1) == word2.charAt(j - 1) ? 0 : 1));
+                }
+            }
+        }
+        return matrix[word1.length()][word2.length()];
+    }
+
+    /** A random word of 1 to 8 letters */
+    private static String word(Random random) {
+        final char[] result = new char[1 + random.nextInt(8)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        }
+        return new String(result);
+    }
+}
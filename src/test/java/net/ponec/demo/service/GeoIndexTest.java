@@ -0,0 +1,119 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.Hotel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the nearest rows of the spatial index against a brute-force haversine search.
+ *
+ * @author Pavel Ponec
+ */
+public class GeoIndexTest {
+
+    /** Tolerance of distances for float coordinates of the index in kilometers */
+    private static final double TOLERANCE_KM = 1.0;
+
+    @Test
+    public void testNearest() {
+        final Random random = new Random(7);
+        final HotelTable table = table(random, 300, 3_000);
+        final GeoIndex index = GeoIndex.of(table);
+        final int located = (int) IntStream.range(0, table.size())
+                .filter(row -> table.getCity(row).getLatitude() != null)
+                .count();
+        assertEquals(located, index.size(), "Rows without a location are not indexed");
+
+        for (int test = 0; test < 200; test++) {
+            final double latitude = Math.toDegrees(Math.asin(2.0 * random.nextDouble() - 1.0));
+            final double longitude = 360.0 * random.nextDouble() - 180.0;
+            final int count = new int[]{1, 7, 100, 10_000}[test % 4];
+            final double maxDistanceKm = new double[]{500.0, 5_000.0, Double.POSITIVE_INFINITY}[test % 3];
+            final IntPredicate filter = test % 2 == 0 ? null : row -> row % 3 != 0;
+
+            final int[] rows = index.nearest(latitude, longitude, count, maxDistanceKm, filter);
+            final List<double[]> expected = bruteForce(table, latitude, longitude, maxDistanceKm, filter);
+            final String message = "Test " + test;
+
+            final long bounded = expected.stream()
+                    .filter(item -> item[0] <= maxDistanceKm - TOLERANCE_KM)
+                    .count();
+            assertTrue(rows.length <= count, message);
+            assertTrue(rows.length >= Math.min(count, bounded), message);
+            assertEquals(rows.length, IntStream.of(rows).distinct().count(), message);
+            for (int i = 0; i < rows.length; i++) {
+                final double distance = distance(table, rows[i], latitude, longitude);
+                assertTrue(filter == null || filter.test(rows[i]), message);
+                assertTrue(distance <= maxDistanceKm + TOLERANCE_KM, message);
+                if (i < expected.size()) {
+                    assertEquals(expected.get(i)[0], distance, TOLERANCE_KM, message + ", position " + i);
+                }
+                if (i > 0 && table.getCityId(rows[i]) == table.getCityId(rows[i - 1])) {
+                    assertTrue(rows[i - 1] < rows[i], "Equal distances are ordered by the row");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        final GeoIndex index = GeoIndex.of(table(new Random(1), 10, 100));
+        assertEquals(0, index.nearest(50.0, 14.0, 0, 100.0, null).length);
+        assertEquals(0, index.nearest(50.0, 14.0, 10, -1.0, null).length);
+        assertEquals(0, index.nearest(50.0, 14.0, 10, Double.NaN, null).length);
+        assertEquals(0, index.nearest(50.0, 14.0, 10, Double.POSITIVE_INFINITY, row -> false).length);
+        assertEquals(0, GeoIndex.of(HotelTable.of(List.of())).nearest(50.0, 14.0, 10, 100.0, null).length);
+    }
+
+    /** Distances and rows of all accepted rows ordered by the distance */
+    private static List<double[]> bruteForce(HotelTable table, double latitude, double longitude,
+            double maxDistanceKm, IntPredicate filter) {
+        final List<double[]> result = new ArrayList<>();
+        for (int row = 0; row < table.size(); row++) {
+            if (table.getCity(row).getLatitude() != null && (filter == null || filter.test(row))) {
+                final double distance = distance(table, row, latitude, longitude);
+                if (distance <= maxDistanceKm) {
+                    result.add(new double[]{distance, row});
+                }
+            }
+        }
+        result.sort(Comparator.<double[]>comparingDouble(item -> item[0]).thenComparingDouble(item -> item[1]));
+        return result;
+    }
+
+    private static double distance(HotelTable table, int row, double latitude, double longitude) {
+        final City city = table.getCity(row);
+        return GeoIndex.distanceKm(latitude, longitude, city.getLatitude(), city.getLongitude());
+    }
+
+    /** Hotels of random cities, some cities have no location */
+    private static HotelTable table(Random random, int cityCount, int hotelCount) {
+        final List<City> cities = new ArrayList<>();
+        for (int id = 1; id <= cityCount; id++) {
+            final City city = new City();
+            city.setId(id);
+            city.setName("City " + id);
+            if (id % 10 != 0) {
+                city.setLatitude((float) Math.toDegrees(Math.asin(2.0 * random.nextDouble() - 1.0)));
+                city.setLongitude((float) (360.0 * random.nextDouble() - 180.0));
+            }
+            cities.add(city);
+        }
+        final List<Hotel> hotels = new ArrayList<>();
+        for (int i = 0; i < hotelCount; i++) {
+            final Hotel hotel = new Hotel();
+            hotel.setName("Hotel " + i);
+            hotel.setCity(i % 50 == 0 ? null : cities.get(random.nextInt(cityCount)));
+            hotels.add(hotel);
+        }
+        return HotelTable.of(hotels);
+    }
+}
@@ -0,0 +1,115 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.Hotel;
+import net.ponec.demo.model.HotelView;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the ordering of hotel columns with missing values.
+ *
+ * @author Pavel Ponec
+ */
+public class HotelColumnTest {
+
+    @Test
+    public void testNullFirst() {
+        final Hotel empty = new Hotel();
+        final Hotel hotel = new Hotel();
+        hotel.setName("");
+        hotel.setCity(HotelSnapshotTest.city(1, "", "CZ"));
+        hotel.setStreet("");
+        hotel.setPrice(BigDecimal.valueOf(-Long.MAX_VALUE, 2));
+        hotel.setStars(Float.NEGATIVE_INFINITY);
+        final HotelTable table = HotelTable.of(List.of(empty, hotel));
+        for (HotelColumn column : HotelColumn.values()) {
+            assertNull(column.apply(table.getRow(0)), column.name());
+            assertNotNull(column.apply(table.getRow(1)), column.name());
+            assertEquals(-1, column.compare(empty, hotel), column.name());
+            assertEquals(1, column.compare(hotel, empty), column.name());
+            assertEquals(0, column.compare(empty, new Hotel()), column.name());
+            assertTrue(column.compare(table, 0, 1) < 0, column.name());
+            assertTrue(column.compare(table, 1, 0) > 0, column.name());
+            assertEquals(0, column.compare(table, 0, 0), column.name());
+        }
+    }
+
+    @Test
+    public void testMissingStars() {
+        final Hotel hotel = new Hotel();
+        hotel.setStars(Float.NaN);
+        final Hotel zero = new Hotel();
+        zero.setStars(0f);
+        final HotelTable table = HotelTable.of(List.of(hotel, zero, new Hotel()));
+        assertNull(table.getRow(0).getStars(), "The NaN is a missing value");
+        assertTrue(HotelColumn.STARS.compare(table, 0, 1) < 0, "The NaN is the first one");
+        assertEquals(0, HotelColumn.STARS.compare(table, 0, 2));
+    }
+
+    /** The table comparator must give the same order as the comparator of hotel views */
+    @Test
+    public void testTableMatchesView() {
+        final HotelTable table = HotelTable.of(hotels(new Random(1), 300));
+        for (HotelColumn column : HotelColumn.values()) {
+            for (int row1 = 0; row1 < table.size(); row1++) {
+                for (int row2 = 0; row2 < table.size(); row2++) {
+                    assertEquals(Integer.signum(column.compare(table.getRow(row1), table.getRow(row2))),
+                            Integer.signum(column.compare(table, row1, row2)),
+                            column + " " + row1 + " " + row2);
+                }
+            }
+        }
+    }
+
+    /** Precomputed orders of the snapshot: missing values are the first ones ascending and the last ones descending */
+    @Test
+    public void testSnapshotOrders() {
+        final HotelSnapshot snapshot = HotelSnapshot.of(hotels(new Random(2), 500).stream());
+        for (HotelColumn column : HotelColumn.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                final int[] rows = IntStream.range(0, snapshot.size())
+                        .map(position -> snapshot.rowAt(column, descending, position))
+                        .toArray();
+                boolean value = false;
+                for (int i = 0; i < rows.length; i++) {
+                    final HotelView hotel = snapshot.getHotel(rows[i]);
+                    if (descending) {
+                        assertFalse(value && column.apply(hotel) != null, column + " desc");
+                        value = column.apply(hotel) == null;
+                    } else {
+                        assertFalse(value && column.apply(hotel) == null, column + " asc");
+                        value = column.apply(hotel) != null;
+                    }
+                    if (i > 0) {
+                        final int result = column.compare(snapshot.getHotel(rows[i - 1]), hotel);
+                        assertTrue(descending ? result >= 0 : result <= 0, column + " " + i);
+                        assertTrue(result != 0 || rows[i - 1] < rows[i], "Equal values keep the order of rows");
+                    }
+                }
+            }
+        }
+    }
+
+    /** Hotels with many equal and missing values */
+    private static List<Hotel> hotels(Random random, int size) {
+        final City[] cities = {HotelSnapshotTest.city(1, "Praha", "CZ"), HotelSnapshotTest.city(2, "Brno", "CZ")};
+        final List<Hotel> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            final Hotel hotel = new Hotel();
+            hotel.setName(random.nextInt(5) == 0 ? null : "Hotel " + random.nextInt(20));
+            hotel.setCity(random.nextInt(5) == 0 ? null : cities[random.nextInt(cities.length)]);
+            hotel.setStreet(random.nextInt(5) == 0 ? null : "Street " + random.nextInt(10));
+            hotel.setPrice(random.nextInt(5) == 0 ? null : BigDecimal.valueOf(random.nextInt(2_000) - 1_000, 2));
+            hotel.setStars(random.nextInt(5) == 0 ? null : random.nextInt(11) / 2f - 1f);
+            result.add(hotel);
+        }
+        return result;
+    }
+}
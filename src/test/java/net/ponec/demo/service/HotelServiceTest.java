@@ -0,0 +1,145 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.Hotel;
+import net.ponec.demo.model.HotelView;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of hotel selections of the service against brute-force results.
+ *
+ * @author Pavel Ponec
+ */
+public class HotelServiceTest {
+
+    /** Count of hotels */
+    private static final int SIZE = 23;
+
+    @Test
+    public void testPaging() {
+        final HotelService service = service(snapshot());
+        for (HotelFilter filter : new HotelFilter[]{HotelFilter.ALL, HotelFilter.of("hotel 1", ""),
+                HotelFilter.of("", "praha"), HotelFilter.of("nothing", "")}) {
+            for (HotelColumn column : HotelColumn.values()) {
+                for (boolean descending : new boolean[]{false, true}) {
+                    final List<Long> expected = sortedIds(service.getSnapshot(), filter, column, descending);
+                    for (int limit : new int[]{1, 4, 5, SIZE, SIZE + 7}) {
+                        // The second walk reads the query cache:
+                        for (int walk = 0; walk < 2; walk++) {
+                            assertWalk(service, filter, column, descending, limit, expected);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStaleCursor() {
+        final HotelService service = service(snapshot());
+        final HotelPage first = service.selectPage(HotelColumn.NAME, false, 5, HotelFilter.ALL, null, null);
+        final PageCursor next = first.getNext();
+        assertNotNull(next);
+        assertNotEquals(ids(first), ids(service.selectPage(HotelColumn.NAME, false, 5, HotelFilter.ALL, null, next)));
+        assertEquals(ids(service.selectPage(HotelColumn.CITY, false, 5, HotelFilter.ALL, null, null)),
+                ids(service.selectPage(HotelColumn.CITY, false, 5, HotelFilter.ALL, null, next)),
+                "A cursor of another sort means the first page");
+
+        service.publish(snapshot());
+        final HotelPage page = service.selectPage(HotelColumn.NAME, false, 5, HotelFilter.ALL, null, next);
+        assertEquals(ids(first), ids(page), "A cursor of a replaced snapshot means the first page");
+        assertNull(page.getPrevious());
+        assertNotNull(page.getNext());
+    }
+
+    @Test
+    public void testEmptyLimit() {
+        final HotelService service = service(snapshot());
+        assertSame(HotelPage.EMPTY, service.selectPage(HotelColumn.NAME, false, 0, HotelFilter.ALL, null, null));
+    }
+
+    /** Walk all pages forward and back, each page except the last one is full */
+    private static void assertWalk(HotelService service, HotelFilter filter, HotelColumn column, boolean descending,
+            int limit, List<Long> expected) {
+        final String message = filter + " " + column + (descending ? " desc " : " asc ") + limit;
+        final List<List<Long>> pages = new ArrayList<>();
+        HotelPage page = service.selectPage(column, descending, limit, filter, null, null);
+        assertNull(page.getPrevious(), message);
+        while (true) {
+            pages.add(ids(page));
+            if (page.getNext() == null) {
+                break;
+            }
+            assertEquals(limit, page.getHotels().size(), message);
+            page = service.selectPage(column, descending, limit, filter, null, PageCursor.parse(page.getNext().toString()));
+            assertNotNull(page.getPrevious(), message);
+        }
+        assertEquals(expected, pages.stream().flatMap(List::stream).collect(Collectors.toList()), message);
+        assertEquals(Math.max(1, (expected.size() + limit - 1) / limit), pages.size(), "No empty page: " + message);
+
+        for (int i = pages.size() - 2; i >= 0; i--) {
+            page = service.selectPage(column, descending, limit, filter, null,
+                    PageCursor.parse(page.getPrevious().toString()));
+            assertEquals(pages.get(i), ids(page), message);
+            assertNotNull(page.getNext(), message);
+            assertEquals(i > 0, page.getPrevious() != null, "The first page has no previous one: " + message);
+        }
+    }
+
+    /** IDs of the matching hotels sorted by a stable sort of rows */
+    static List<Long> sortedIds(HotelSnapshot snapshot, HotelFilter filter, HotelColumn column, boolean descending) {
+        final Comparator<Integer> ascending = (row1, row2) -> column.compare(snapshot.getHotel(row1), snapshot.getHotel(row2));
+        return IntStream.range(0, snapshot.size())
+                .filter(row -> HotelSnapshot.normalize(snapshot.getHotel(row).getName()).contains(filter.getName()))
+                .filter(row -> HotelSnapshot.normalize(snapshot.getHotel(row).getCityName()).contains(filter.getCity()))
+                .boxed()
+                .sorted(descending ? ascending.reversed() : ascending)
+                .map(row -> snapshot.getHotel(row).getId())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(HotelPage page) {
+        return page.stream().map(HotelView::getId).collect(Collectors.toList());
+    }
+
+    static HotelService service(HotelSnapshot snapshot) {
+        final HotelService result = new HotelService();
+        result.publish(snapshot);
+        return result;
+    }
+
+    /** Hotels with equal and missing values of sorted columns */
+    static HotelSnapshot snapshot() {
+        final City prague = city(1, "Praha", "CZ");
+        final City brno = city(2, "Brno", "CZ");
+        final City paris = city(3, "Paris", "FR");
+        final List<Hotel> hotels = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            final Hotel hotel = new Hotel();
+            hotel.setId((long) i);
+            hotel.setName(i % 11 == 10 ? null : "Hotel " + (char) ('A' + i % 5) + i);
+            hotel.setCity(i % 7 == 6 ? null : i % 3 == 0 ? prague : i % 3 == 1 ? brno : paris);
+            hotel.setStreet(i % 4 == 0 ? null : "Street " + i % 6);
+            hotel.setPrice(i % 5 == 4 ? null : BigDecimal.valueOf(i % 6 * 1_000 + 50, 2));
+            hotel.setStars(i % 6 == 5 ? null : (float) (i % 4));
+            hotels.add(hotel);
+        }
+        return HotelSnapshot.of(hotels.stream());
+    }
+
+    static City city(int id, String name, String country) {
+        final City result = new City();
+        result.setId(id);
+        result.setName(name);
+        result.setCountry(country);
+        return result;
+    }
+}
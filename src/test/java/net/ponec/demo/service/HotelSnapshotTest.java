@@ -0,0 +1,130 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.Hotel;
+import net.ponec.demo.model.HotelView;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of row selections of the hotel snapshot against a brute-force filter.
+ *
+ * @author Pavel Ponec
+ */
+public class HotelSnapshotTest {
+
+    /** Price bounds including values of the data, values between them and values out of the data range */
+    private static final BigDecimal[] PRICE_BOUNDS = {null,
+            new BigDecimal("-5"), BigDecimal.ZERO, new BigDecimal("0.01"), new BigDecimal("10.50"),
+            new BigDecimal("10.505"), new BigDecimal("10.499"), new BigDecimal("25"), new BigDecimal("99.99"),
+            new BigDecimal("1000")};
+    /** Star bounds */
+    private static final Float[] STARS_BOUNDS = {null, -1f, 0f, 2f, 2.5f, 3f, 5f, 6f};
+    /** Text patterns including patterns shorter than a trigram */
+    private static final String[] PATTERNS = {"", "h", "ot", "hotel", "tel 1", "ague", "zzz"};
+
+    @Test
+    public void testPriceRange() {
+        final HotelSnapshot snapshot = snapshot(new Random(1), 2_000);
+        for (BigDecimal min : PRICE_BOUNDS) {
+            for (BigDecimal max : PRICE_BOUNDS) {
+                assertRows(snapshot, HotelFilter.ALL.withPrice(min, max));
+            }
+        }
+    }
+
+    @Test
+    public void testStarsRange() {
+        final HotelSnapshot snapshot = snapshot(new Random(2), 2_000);
+        for (Float min : STARS_BOUNDS) {
+            assertRows(snapshot, HotelFilter.ALL.withMinStars(min));
+            for (BigDecimal max : PRICE_BOUNDS) {
+                assertRows(snapshot, HotelFilter.ALL.withMinStars(min).withPrice(new BigDecimal("10.50"), max));
+            }
+        }
+    }
+
+    @Test
+    public void testRangesWithPatterns() {
+        final Random random = new Random(3);
+        final HotelSnapshot snapshot = snapshot(random, 2_000);
+        for (String name : PATTERNS) {
+            for (String city : PATTERNS) {
+                for (int test = 0; test < 10; test++) {
+                    final BigDecimal min = PRICE_BOUNDS[random.nextInt(PRICE_BOUNDS.length)];
+                    final BigDecimal max = PRICE_BOUNDS[random.nextInt(PRICE_BOUNDS.length)];
+                    final Float stars = STARS_BOUNDS[random.nextInt(STARS_BOUNDS.length)];
+                    assertRows(snapshot, HotelFilter.of(name, city).withPrice(min, max).withMinStars(stars));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyRange() {
+        final HotelSnapshot snapshot = snapshot(new Random(4), 500);
+        assertEquals(0, snapshot.selectRows(HotelFilter.ALL.withPrice(new BigDecimal("20"), new BigDecimal("10"))).count(),
+                "The min is greater than the max");
+        assertEquals(0, snapshot.selectRows(HotelFilter.ALL.withPrice(new BigDecimal("10.501"), new BigDecimal("10.509")))
+                .count(), "No cent in the range");
+        assertEquals(0, HotelSnapshot.EMPTY.selectRows(HotelFilter.ALL.withPrice(null, BigDecimal.TEN)).count());
+    }
+
+    /** Compare the selection and a refinement with a brute-force filter */
+    private static void assertRows(HotelSnapshot snapshot, HotelFilter filter) {
+        final int[] expected = IntStream.range(0, snapshot.size())
+                .filter(row -> accepts(snapshot.getHotel(row), filter))
+                .toArray();
+        assertArrayEquals(expected, snapshot.selectRows(filter).toArray(), filter.toString());
+        final int[] all = IntStream.range(0, snapshot.size()).toArray();
+        assertArrayEquals(expected, snapshot.refineRows(all, filter).toArray(), filter.toString());
+    }
+
+    /** A brute-force filter, a range doesn't accept a missing value */
+    private static boolean accepts(HotelView hotel, HotelFilter filter) {
+        if (filter.hasPriceRange()) {
+            final BigDecimal price = hotel.getPrice();
+            if (price == null
+                    || price.movePointRight(2).longValueExact() < filter.getMinPriceCents()
+                    || price.movePointRight(2).longValueExact() > filter.getMaxPriceCents()) {
+                return false;
+            }
+        }
+        if (filter.hasStarsRange() && (hotel.getStars() == null || hotel.getStars() < filter.getMinStars())) {
+            return false;
+        }
+        return HotelSnapshot.normalize(hotel.getName()).contains(filter.getName())
+                && HotelSnapshot.normalize(hotel.getCityName()).contains(filter.getCity());
+    }
+
+    /** Random hotels with equal and missing prices and stars */
+    static HotelSnapshot snapshot(Random random, int size) {
+        final City[] cities = {city(1, "Prague", "CZ"), city(2, "Brno", "CZ"), city(3, "Hotel City", "US")};
+        final List<Hotel> hotels = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            final Hotel hotel = new Hotel();
+            hotel.setName(random.nextInt(50) == 0 ? null : "Hotel " + random.nextInt(size));
+            hotel.setCity(random.nextInt(20) == 0 ? null : cities[random.nextInt(cities.length)]);
+            hotel.setPrice(random.nextInt(10) == 0 ? null : new BigDecimal[]{BigDecimal.ZERO, new BigDecimal("0.01"),
+                    new BigDecimal("10.50"), new BigDecimal("10.51"), new BigDecimal("25.00"),
+                    BigDecimal.valueOf(random.nextInt(10_000), 2)}[random.nextInt(6)]);
+            hotel.setStars(random.nextInt(10) == 0 ? null : random.nextInt(11) / 2f);
+            hotels.add(hotel);
+        }
+        return HotelSnapshot.of(hotels.stream());
+    }
+
+    static City city(int id, String name, String country) {
+        final City result = new City();
+        result.setId(id);
+        result.setName(name);
+        result.setCountry(country);
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.Hotel;
+import net.ponec.demo.model.HotelView;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the columnar hotel table and its builder.
+ *
+ * @author Pavel Ponec
+ */
+public class HotelTableTest {
+
+    @Test
+    public void testBuilder() {
+        final City city = new City();
+        city.setId(7);
+        city.setName("Praha");
+        city.setCountry("CZ");
+        final HotelTable.Builder builder = HotelTable.builder();
+        final int size = 3_000;
+        for (int i = 0; i < size; i++) {
+            builder.add(i == 1_500 ? 42L : HotelTable.NO_ID, "Hotel " + i, null, i % 2 == 0 ? city : null,
+                    "Street " + i, null, i % 5, null, BigDecimal.valueOf(i, 1), "USD", i % 3 == 0);
+        }
+        final HotelTable table = builder.build();
+
+        assertEquals(size, table.size());
+        for (int row = 0; row < size; row++) {
+            final HotelView hotel = table.getRow(row);
+            assertEquals("Hotel " + row, hotel.getName());
+            assertEquals("Street " + row, hotel.getStreet());
+            assertEquals(row == 1_500 ? Long.valueOf(42L) : null, hotel.getId());
+            assertEquals(row % 2 == 0 ? "Praha" : null, hotel.getCityName());
+            assertEquals(row % 2 == 0 ? 7 : HotelTable.NO_CITY, table.getCityId(row));
+            assertEquals((float) (row % 5), hotel.getStars());
+            assertEquals(0, BigDecimal.valueOf(row, 1).compareTo(hotel.getPrice()));
+            assertEquals("USD", hotel.getCurrency());
+            assertEquals(row % 3 == 0, hotel.getActive());
+        }
+        assertNotSame(city, table.getCity(0), "The table keeps its own copy of the city");
+    }
+
+    @Test
+    public void testPriceOutOfRange() {
+        final Hotel hotel = new Hotel();
+        hotel.setName("Expensive");
+        hotel.setPrice(new BigDecimal("1E+30"));
+        final Hotel cheap = new Hotel();
+        cheap.setName("Cheap");
+        cheap.setPrice(new BigDecimal("12.345"));
+        final HotelTable table = HotelTable.of(List.of(hotel, cheap));
+
+        assertEquals(2, table.size(), "A bad price doesn't stop the load");
+        assertEquals(HotelTable.NO_PRICE, table.getPriceCents(0));
+        assertNull(table.getRow(0).getPrice());
+        assertEquals(1235L, table.getPriceCents(1), "A price is rounded half up to cents");
+    }
+
+    @Test
+    public void testToCents() {
+        final BigDecimal max = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+        assertEquals(Long.MAX_VALUE, HotelTable.toCents(max, null));
+        assertEquals(-Long.MAX_VALUE, HotelTable.toCents(max.negate(), null));
+        assertEquals(HotelTable.NO_PRICE, HotelTable.toCents(max.add(new BigDecimal("0.01")), null));
+        assertEquals(HotelTable.NO_PRICE, HotelTable.toCents(max.negate().subtract(new BigDecimal("0.01")), null));
+        assertEquals(HotelTable.NO_PRICE, HotelTable.toCents(null, null));
+        assertEquals(-150L, HotelTable.toCents(new BigDecimal("-1.495"), null));
+    }
+
+    @Test
+    public void testReadOnlyRow() {
+        final HotelTable table = HotelTable.of(List.of(new Hotel()));
+        assertFalse(table.getRow(0) instanceof Hotel, "A row is not a mutable bean");
+        assertThrows(UnsupportedOperationException.class, () -> table.asList().set(0, new Hotel()));
+    }
+}
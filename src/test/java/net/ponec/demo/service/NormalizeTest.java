@@ -0,0 +1,74 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.Hotel;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the search keys of the "contains" filters.
+ *
+ * @author Pavel Ponec
+ */
+public class NormalizeTest {
+
+    @Test
+    public void testFolding() {
+        assertEquals("", HotelSnapshot.normalize(null));
+        assertEquals("", HotelSnapshot.normalize(""));
+        assertEquals("hotel abc 12", HotelSnapshot.normalize("Hotel ABC 12"));
+        assertEquals("brasilia", HotelSnapshot.normalize("Brasília"));
+        assertEquals("brasilia", HotelSnapshot.normalize("Brasi\u0301lia"), "A decomposed text");
+        assertEquals("strasse", HotelSnapshot.normalize("Straße"));
+        assertEquals("strasse", HotelSnapshot.normalize("STRASSE"));
+        assertEquals("zlutoucky kun", HotelSnapshot.normalize("ŽLUŤOUČKÝ kůň"));
+        assertEquals("sao paulo", HotelSnapshot.normalize("São Paulo"));
+        assertEquals("istanbul", HotelSnapshot.normalize("İstanbul"));
+        assertEquals("zurich", HotelSnapshot.normalize("Zürich"));
+        assertEquals("москва", HotelSnapshot.normalize("Москва"), "Letters of other scripts are kept");
+        assertEquals("東京", HotelSnapshot.normalize("東京"));
+    }
+
+    @Test
+    public void testAsciiPath() {
+        final Random random = new Random(1);
+        for (int test = 0; test < 1_000; test++) {
+            final StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(20); i > 0; i--) {
+                text.append((char) (0x20 + random.nextInt(0x5F)));
+            }
+            final String key = HotelSnapshot.normalize(text.toString());
+            assertEquals(key + "e", HotelSnapshot.normalize(text + "É"), "The Unicode path folds ASCII the same way");
+        }
+    }
+
+    @Test
+    public void testDefaultLocale() {
+        final Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertEquals("title", HotelSnapshot.normalize("TITLE"));
+            assertEquals("title a", HotelSnapshot.normalize("TITLE Á"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testFilter() {
+        final HotelSnapshot snapshot = HotelSnapshot.of(Stream.of("Hotel Brasília", "Große Straße", "Hotel Brasil")
+                .map(name -> {
+                    final Hotel hotel = new Hotel();
+                    hotel.setName(name);
+                    return hotel;
+                }));
+        assertArrayEquals(new int[]{0}, snapshot.selectRows(HotelFilter.of("brasilia", "")).toArray());
+        assertArrayEquals(new int[]{0}, snapshot.selectRows(HotelFilter.of("BRASÍLIA", "")).toArray());
+        assertArrayEquals(new int[]{0, 2}, snapshot.selectRows(HotelFilter.of("Brasil", "")).toArray());
+        assertArrayEquals(new int[]{1}, snapshot.selectRows(HotelFilter.of("strasse", "")).toArray());
+        assertArrayEquals(new int[]{1}, snapshot.selectRows(HotelFilter.of("GROSSE", "")).toArray());
+    }
+}
@@ -0,0 +1,90 @@
+package net.ponec.demo.service;
+
+import net.ponec.demo.model.Hotel;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the text form of the keyset cursor.
+ *
+ * @author Pavel Ponec
+ */
+public class PageCursorTest {
+
+    @Test
+    public void testRoundTrip() {
+        final HotelSnapshot snapshot = snapshot(10);
+        for (HotelColumn column : HotelColumn.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                final PageCursor next = PageCursor.next(snapshot, column, descending, 7);
+                final PageCursor previous = PageCursor.previous(snapshot, column, descending, 0);
+                assertEquals("n." + snapshot.getVersion() + "." + column.name() + (descending ? ".d." : ".a.") + 7,
+                        next.toString());
+                assertEquals("p." + snapshot.getVersion() + "." + column.name() + (descending ? ".d." : ".a.") + 0,
+                        previous.toString());
+
+                final PageCursor parsedNext = PageCursor.parse(next.toString());
+                assertNotNull(parsedNext);
+                assertTrue(parsedNext.isNext());
+                assertEquals(7, parsedNext.getRow());
+                assertEquals(next.toString(), parsedNext.toString());
+                assertTrue(parsedNext.isValidFor(snapshot, column, descending));
+                assertFalse(parsedNext.isValidFor(snapshot, column, !descending), "Another direction");
+
+                final PageCursor parsedPrevious = PageCursor.parse(previous.toString());
+                assertNotNull(parsedPrevious);
+                assertFalse(parsedPrevious.isNext());
+                assertEquals(previous.toString(), parsedPrevious.toString());
+            }
+        }
+        assertFalse(PageCursor.parse("n." + snapshot.getVersion() + ".NAME.a.7")
+                .isValidFor(snapshot, HotelColumn.CITY, false), "Another column");
+    }
+
+    @Test
+    public void testStaleVersion() {
+        final HotelSnapshot old = snapshot(10);
+        final HotelSnapshot current = snapshot(10);
+        final PageCursor cursor = PageCursor.parse(PageCursor.next(old, HotelColumn.NAME, false, 3).toString());
+        assertNotNull(cursor);
+        assertTrue(cursor.isValidFor(old, HotelColumn.NAME, false));
+        assertFalse(cursor.isValidFor(current, HotelColumn.NAME, false), "A cursor of a replaced snapshot");
+        assertFalse(PageCursor.parse("n." + current.getVersion() + ".NAME.a.10")
+                .isValidFor(current, HotelColumn.NAME, false), "A row out of the snapshot");
+    }
+
+    @Test
+    public void testMalformed() {
+        for (String text : new String[]{
+                null,
+                "",
+                "n",
+                "n.1.NAME.a",
+                "n.1.NAME.a.2.3",
+                "x.1.NAME.a.2",
+                "n.1.NAME.x.2",
+                "n.1.UNKNOWN.a.2",
+                "n.1.name.a.2",
+                "n.one.NAME.a.2",
+                "n.1.NAME.a.two",
+                "n.1.NAME.a.-2",
+                "n.1.NAME.a.",
+                "n..NAME.a.2",
+                "n|1|NAME|a|2",
+                "n.99999999999999999999.NAME.a.2",
+                "n.1.NAME.a.99999999999"}) {
+            assertNull(PageCursor.parse(text), "Rejected: " + text);
+        }
+    }
+
+    /** A snapshot of hotels named by their row */
+    static HotelSnapshot snapshot(int size) {
+        return HotelSnapshot.of(Stream.iterate(0, i -> i + 1).limit(size).map(i -> {
+            final Hotel hotel = new Hotel();
+            hotel.setName("Hotel " + i);
+            return hotel;
+        }));
+    }
+}
@@ -0,0 +1,82 @@
+package net.ponec.demo.service;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of fork/join row operations with a low threshold, so the tasks are really forked,
+ * and of the sequential processing under the threshold.
+ *
+ * @author Pavel Ponec
+ */
+public class ParallelRowsTest {
+
+    /** A low threshold of the parallel processing */
+    private static final int THRESHOLD = 64;
+
+    @Test
+    public void testFilter() {
+        final int[] rows = new Random(1).ints(10_000, 0, 1_000_000).toArray();
+        final AtomicBoolean forked = new AtomicBoolean();
+        final int[] result = ParallelRows.filter(rows.length, i -> rows[i], row -> {
+            if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+                forked.set(true);
+            }
+            return row % 3 == 0;
+        }, THRESHOLD);
+
+        assertTrue(forked.get(), "No task runs in the pool");
+        assertArrayEquals(IntStream.of(rows).filter(row -> row % 3 == 0).toArray(), result);
+    }
+
+    @Test
+    public void testSequential() {
+        final Thread caller = Thread.currentThread();
+        for (int size : new int[]{THRESHOLD / 4, THRESHOLD / 4 + 1, THRESHOLD / 2, THRESHOLD - 1}) {
+            final int[] rows = IntStream.range(0, size).toArray();
+            final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            final int[] result = ParallelRows.filter(size, i -> rows[i], row -> {
+                threads.add(Thread.currentThread());
+                return row % 2 == 0;
+            }, THRESHOLD);
+            ParallelRows.topKeys(rows, row -> {
+                threads.add(Thread.currentThread());
+                return row;
+            }, 0, size, 10, true, THRESHOLD);
+
+            assertEquals(Set.of(caller), threads, "size=" + size);
+            assertEquals((size + 1) / 2, result.length);
+        }
+    }
+
+    @Test
+    public void testTopKeys() {
+        final int size = 10_000;
+        final int[] rows = IntStream.range(0, size).toArray();
+        final int[] keys = IntStream.range(0, size).map(i -> i * 7 % size).toArray(); // A permutation
+        final Random random = new Random(2);
+        for (int threshold : new int[]{1, 3, THRESHOLD, Integer.MAX_VALUE}) {
+            for (int test = 0; test < 50; test++) {
+                final int from = random.nextInt(size);
+                final int to = from + random.nextInt(size - from + 1);
+                final int count = random.nextInt(300);
+                final boolean highest = random.nextBoolean();
+                final int[] accepted = IntStream.of(keys).filter(key -> key >= from && key < to).sorted().toArray();
+                final int[] expected = highest
+                        ? Arrays.copyOfRange(accepted, Math.max(0, accepted.length - count), accepted.length)
+                        : Arrays.copyOf(accepted, Math.min(count, accepted.length));
+
+                final int[] result = ParallelRows.topKeys(rows, row -> keys[row], from, to, count, highest, threshold);
+                assertArrayEquals(expected, result, "threshold=" + threshold + ", test=" + test);
+            }
+        }
+    }
+}
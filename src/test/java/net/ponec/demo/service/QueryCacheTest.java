@@ -0,0 +1,75 @@
+package net.ponec.demo.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the LRU and TTL eviction of the query cache.
+ *
+ * @author Pavel Ponec
+ */
+public class QueryCacheTest {
+
+    @Test
+    public void testLruEviction() {
+        final QueryCache<String, Integer> cache = new QueryCache<>(3, Duration.ofHours(1));
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        assertEquals(1, cache.get("a"), "The access moves the entry to the end");
+        cache.put("d", 4);
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("b"), "The least recently used entry");
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(4, cache.get("d"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(4, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.put("c", 30);
+        cache.put("e", 5);
+        assertNull(cache.get("a"), "A replaced entry is a recently used one");
+        assertEquals(30, cache.get("c"));
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testTtlExpiry() throws InterruptedException {
+        final QueryCache<String, Integer> expired = new QueryCache<>(10, Duration.ZERO);
+        expired.put("a", 1);
+        assertNull(expired.get("a"), "A zero TTL expires each entry");
+        assertEquals(0, expired.size(), "An expired entry is removed");
+        assertEquals(1, expired.getEvictionCount());
+
+        final QueryCache<String, Integer> cache = new QueryCache<>(10, Duration.ofMillis(100));
+        final long created = System.nanoTime();
+        cache.put("a", 1);
+        final Integer value = cache.get("a");
+        // A slow machine can expire the entry before the first read:
+        if (System.nanoTime() - created < Duration.ofMillis(100).toNanos()) {
+            assertEquals(1, value);
+        }
+        Thread.sleep(150);
+        assertNull(cache.get("a"));
+        cache.put("a", 2);
+        assertEquals(2, cache.get("a"), "A new entry has a new creation time");
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+        final QueryCache<String, Integer> cache = new QueryCache<>(2, Duration.ofHours(1));
+        final AtomicInteger calls = new AtomicInteger();
+        assertEquals(1, cache.computeIfAbsent("a", key -> calls.incrementAndGet()));
+        assertEquals(1, cache.computeIfAbsent("a", key -> calls.incrementAndGet()));
+        assertEquals(1, calls.get());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.computeIfAbsent("a", key -> calls.incrementAndGet()));
+    }
+}
@@ -0,0 +1,88 @@
+package net.ponec.demo.service;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of trigram candidates against a brute-force search.
+ *
+ * @author Pavel Ponec
+ */
+public class TrigramIndexTest {
+
+    @Test
+    public void testCandidates() {
+        final Random random = new Random(1);
+        final String[] keys = keys(random, 1_000);
+        final TrigramIndex index = TrigramIndex.of(keys);
+        final TrigramIndex stored = TrigramIndex.of(index.codes(), index.postings());
+        for (int test = 0; test < 2_000; test++) {
+            final String pattern = text(random, random.nextInt(8));
+            assertCandidates(keys, pattern, index.candidates(pattern));
+            assertArrayEquals(index.candidates(pattern), stored.candidates(pattern), "Stored: " + pattern);
+        }
+        assertCandidates(keys, "aaaaaa", index.candidates("aaaaaa"));
+        assertCandidates(keys, "abcab", index.candidates("abcab"));
+    }
+
+    @Test
+    public void testShortPattern() {
+        final TrigramIndex index = TrigramIndex.of(new String[]{"abc", null, "ab"});
+        for (String pattern : new String[]{"", "a", "ab"}) {
+            assertNull(index.candidates(pattern), "A short pattern: " + pattern);
+        }
+        assertArrayEquals(new int[]{0}, index.candidates("abc"));
+        assertArrayEquals(new int[0], index.candidates("abd"));
+        assertArrayEquals(new int[0], index.candidates("abcd"));
+    }
+
+    @Test
+    public void testIntersect() {
+        assertArrayEquals(new int[]{3, 7}, TrigramIndex.intersect(new int[]{1, 3, 7, 9}, new int[]{2, 3, 4, 7, 8}));
+        assertArrayEquals(new int[0], TrigramIndex.intersect(new int[]{10, 11}, new int[]{1, 2}));
+        assertArrayEquals(new int[0], TrigramIndex.intersect(new int[0], new int[]{1, 2}));
+        assertArrayEquals(new int[]{1, 2}, TrigramIndex.intersect(new int[]{1, 2}, new int[]{1, 2}));
+    }
+
+    /**
+     * The candidates are ascending rows, they contain all matching rows
+     * and no row without any trigram of the pattern.
+     */
+    private static void assertCandidates(String[] keys, String pattern, int[] candidates) {
+        if (pattern.length() < TrigramIndex.GRAM_LENGTH) {
+            assertNull(candidates, pattern);
+            return;
+        }
+        assertNotNull(candidates, pattern);
+        for (int i = 1; i < candidates.length; i++) {
+            assertTrue(candidates[i - 1] < candidates[i], "Ascending rows: " + pattern);
+        }
+        final int[] expected = IntStream.range(0, keys.length)
+                .filter(row -> keys[row] != null)
+                .filter(row -> IntStream.rangeClosed(0, pattern.length() - TrigramIndex.GRAM_LENGTH)
+                        .allMatch(i -> keys[row].contains(pattern.substring(i, i + TrigramIndex.GRAM_LENGTH))))
+                .toArray();
+        assertArrayEquals(expected, candidates, "Rows with all trigrams: " + pattern);
+        IntStream.range(0, keys.length)
+                .filter(row -> keys[row] != null && keys[row].contains(pattern))
+                .forEach(row -> assertTrue(IntStream.of(candidates).anyMatch(c -> c == row), "A superset: " + pattern));
+    }
+
+    /** Keys of a small alphabet, so that trigrams repeat */
+    private static String[] keys(Random random, int size) {
+        return IntStream.range(0, size)
+                .mapToObj(row -> random.nextInt(20) == 0 ? null : text(random, random.nextInt(12)))
+                .toArray(String[]::new);
+    }
+
+    private static String text(Random random, int length) {
+        final StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            result.append("abc d".charAt(random.nextInt(5)));
+        }
+        return result.toString();
+    }
+}
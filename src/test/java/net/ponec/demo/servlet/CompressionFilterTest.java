@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec/demo-ajax
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the gzip output of the compression filter.
+ *
+ * @author Pavel Ponec
+ */
+public class CompressionFilterTest {
+
+    @Test
+    public void testGzipStream() throws Exception {
+        final byte[] data = text(10_000);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CompressionFilter.GzipStream gzip = new CompressionFilter.GzipStream(out, CompressionFilter.acquireDeflater());
+        gzip.write(data, 0, 3_000);
+        gzip.flush();
+        assertArrayEquals(Arrays.copyOf(data, 3_000), inflateFlushed(out.toByteArray()), "Sync flush");
+
+        gzip.write(data, 3_000, data.length - 3_000);
+        gzip.finish();
+        assertArrayEquals(data, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    public void testBelowThreshold() throws Exception {
+        final byte[] data = text(CompressionFilter.THRESHOLD - 1);
+        final MockResponse response = new MockResponse();
+        final CompressionFilter.BufferedStream stream = new CompressionFilter.BufferedStream(response.proxy);
+        stream.write(data, 0, data.length);
+        stream.close();
+
+        assertNull(response.headers.get("Content-Encoding"));
+        assertArrayEquals(data, response.body.toByteArray());
+    }
+
+    @Test
+    public void testAboveThreshold() throws Exception {
+        for (int test = 0; test < 3; test++) { // Pooled deflaters are reused
+            final byte[] data = text(CompressionFilter.THRESHOLD * 5 + test);
+            final MockResponse response = new MockResponse();
+            final CompressionFilter.BufferedStream stream = new CompressionFilter.BufferedStream(response.proxy);
+            for (int i = 0; i < data.length; i += 100) {
+                stream.write(data, i, Math.min(100, data.length - i));
+            }
+            stream.close();
+
+            assertEquals("gzip", response.headers.get("Content-Encoding"));
+            assertArrayEquals(data, gunzip(response.body.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testFlushBelowThreshold() throws Exception {
+        final byte[] data = text(300);
+        final MockResponse response = new MockResponse();
+        final CompressionFilter.BufferedStream stream = new CompressionFilter.BufferedStream(response.proxy);
+        stream.write(data, 0, 100);
+        stream.flush(); // A streamed chunk
+        assertEquals("gzip", response.headers.get("Content-Encoding"));
+        assertArrayEquals(Arrays.copyOf(data, 100), inflateFlushed(response.body.toByteArray()));
+
+        stream.write(data, 100, 200);
+        stream.close();
+        assertArrayEquals(data, gunzip(response.body.toByteArray()));
+    }
+
+    @Test
+    public void testBinaryContent() throws Exception {
+        final byte[] data = text(CompressionFilter.THRESHOLD * 2);
+        final MockResponse response = new MockResponse();
+        response.contentType = "image/png";
+        final CompressionFilter.BufferedStream stream = new CompressionFilter.BufferedStream(response.proxy);
+        stream.write(data, 0, data.length);
+        stream.close();
+
+        assertNull(response.headers.get("Content-Encoding"));
+        assertArrayEquals(data, response.body.toByteArray());
+    }
+
+    @Test
+    public void testHeaders() {
+        final Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertTrue(CompressionFilter.isCompressible("APPLICATION/JSON"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+        assertFalse(CompressionFilter.isCompressible("image/png"));
+        assertTrue(CompressionFilter.acceptsGzip("deflate, gzip;q=0.5"));
+        assertFalse(CompressionFilter.acceptsGzip("gzip;q=0, deflate"));
+        assertEquals("W/\"1-a\"", CompressionFilter.weakenETag("ETag", "\"1-a\""));
+        assertEquals("W/\"1-a\"", CompressionFilter.weakenETag("ETag", "W/\"1-a\""));
+    }
+
+    /** A text of the length */
+    private static byte[] text(int length) {
+        final StringBuilder result = new StringBuilder(length);
+        for (int i = 0; result.length() < length; i++) {
+            result.append("Hotel ").append(i).append(", ");
+        }
+        return result.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Decompress a complete gzip content */
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return input.readAllBytes();
+        }
+    }
+
+    /** Decompress a flushed gzip content without the trailer */
+    private static byte[] inflateFlushed(byte[] data) throws Exception {
+        final Inflater inflater = new Inflater(true);
+        inflater.setInput(data, 10, data.length - 10); // Skip the gzip header
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        for (int count; (count = inflater.inflate(buffer)) > 0; ) {
+            result.write(buffer, 0, count);
+        }
+        inflater.end();
+        return result.toByteArray();
+    }
+
+    /** A response writing to a byte array */
+    private static final class MockResponse {
+        final Map<String, String> headers = new HashMap<>();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        String contentType = "text/html";
+        final HttpServletResponse proxy = (HttpServletResponse) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class},
+                (object, method, args) -> {
+                    switch (method.getName()) {
+                        case "isCommitted":
+                            return false;
+                        case "getContentType":
+                            return contentType;
+                        case "getHeader":
+                            return headers.get((String) args[0]);
+                        case "setHeader":
+                            headers.put((String) args[0], (String) args[1]);
+                            return null;
+                        case "getOutputStream":
+                            return new ServletOutputStream() {
+                                @Override
+                                public void write(int b) {
+                                    body.write(b);
+                                }
+
+                                @Override
+                                public boolean isReady() {
+                                    return true;
+                                }
+
+                                @Override
+                                public void setWriteListener(WriteListener listener) {
+                                }
+                            };
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
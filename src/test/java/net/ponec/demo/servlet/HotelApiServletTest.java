@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec/demo-ajax
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.servlet;
+
+import net.ponec.demo.model.City;
+import net.ponec.demo.model.Hotel;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the JSON output of hotels.
+ *
+ * @author Pavel Ponec
+ */
+public class HotelApiServletTest {
+
+    @Test
+    public void testWriteHotel() {
+        final Hotel hotel = new Hotel();
+        hotel.setName("Grand \"Hotel\"\n");
+        hotel.setCity(City.UNKNOWN);
+        hotel.setPrice(new BigDecimal("12.50"));
+        hotel.setStars(4.5f);
+        assertEquals("{\"name\":\"Grand \\\"Hotel\\\"\\n\",\"city\":null,\"country\":null,\"street\":null,"
+                + "\"phone\":null,\"stars\":4.5,\"price\":12.50,\"currency\":null,\"homePage\":null}", json(hotel));
+
+        for (Float stars : new Float[]{null, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY}) {
+            hotel.setStars(stars);
+            assertTrue(json(hotel).contains("\"stars\":null,"), "stars=" + stars);
+        }
+    }
+
+    private static String json(Hotel hotel) {
+        final StringWriter result = new StringWriter();
+        new HotelApiServlet().writeHotel(new PrintWriter(result), hotel);
+        return result.toString();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020-2022 Pavel Ponec, https://github.com/pponec/demo-ajax
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ponec.demo.servlet;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the static asset filter with files of a temporary directory.
+ *
+ * @author Pavel Ponec
+ */
+public class StaticAssetFilterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testRevalidation() throws Exception {
+        final Path css = dir.resolve("a.css");
+        write(css, "body {}", 1_000_000L);
+        final StaticAssetFilter filter = filter();
+
+        final MockResponse first = get(filter, "/a.css", null, null);
+        assertEquals(200, first.status);
+        assertEquals("body {}", first.body.toString(StandardCharsets.UTF_8.name()));
+        assertEquals("public, max-age=" + StaticAssetFilter.MAX_AGE + ", must-revalidate",
+                first.headers.get("Cache-Control"));
+        final String etag = first.headers.get("ETag");
+        assertNotNull(etag);
+
+        assertEquals(304, get(filter, "/a.css", etag, null).status);
+        assertEquals(304, get(filter, "/a.css", "W/" + etag, null).status);
+
+        write(css, "body {color: red}", 2_000_000L); // An edited asset
+        final MockResponse edited = get(filter, "/a.css", etag, null);
+        assertEquals(200, edited.status);
+        assertNotEquals(etag, edited.headers.get("ETag"));
+        assertEquals("body {color: red}", edited.body.toString(StandardCharsets.UTF_8.name()));
+
+        assertTrue(get(filter, "/missing.css", null, null).passed, "A missing asset");
+        assertTrue(get(filter, "/a.css.gz", null, null).passed, "A precompressed variant");
+    }
+
+    @Test
+    public void testGzipVariant() throws Exception {
+        final Path css = dir.resolve("b.css");
+        final Path gzip = dir.resolve("b.css.gz");
+        write(css, "body {}", 2_000_000L);
+        write(gzip, "gzipped", 1_000_000L);
+        final StaticAssetFilter filter = filter();
+
+        final MockResponse outdated = get(filter, "/b.css", null, "gzip");
+        assertNull(outdated.headers.get("Content-Encoding"), "An outdated variant is ignored");
+        assertEquals("body {}", outdated.body.toString(StandardCharsets.UTF_8.name()));
+
+        write(gzip, "gzipped", 3_000_000L);
+        final MockResponse current = get(filter(), "/b.css", null, "gzip");
+        assertEquals("gzip", current.headers.get("Content-Encoding"));
+        assertEquals("gzipped", current.body.toString(StandardCharsets.UTF_8.name()));
+        assertTrue(current.headers.get("ETag").endsWith("-gz\""));
+    }
+
+    @Test
+    public void testNotModified() {
+        assertFalse(CompressionFilter.isNotModified(null, "\"1\""));
+        assertTrue(CompressionFilter.isNotModified("\"0\", \"1\"", "\"1\""));
+        assertTrue(CompressionFilter.isNotModified("W/\"1\"", "\"1\""));
+        assertTrue(CompressionFilter.isNotModified("*", "\"1\""));
+        assertFalse(CompressionFilter.isNotModified("\"2\"", "\"1\""));
+    }
+
+    private static void write(Path file, String content, long lastModified) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+    }
+
+    /** A filter serving files of the temporary directory */
+    private StaticAssetFilter filter() {
+        final ServletContext context = proxy(ServletContext.class, (method, args) -> {
+            switch (method) {
+                case "getResource":
+                    final Path file = dir.resolve(((String) args[0]).substring(1));
+                    return Files.exists(file) ? file.toUri().toURL() : null;
+                case "getMimeType":
+                    return "text/css";
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        final StaticAssetFilter result = new StaticAssetFilter();
+        result.init(proxy(FilterConfig.class, (method, args) -> context));
+        return result;
+    }
+
+    /** Send a GET request to the filter */
+    private static MockResponse get(StaticAssetFilter filter, String path, String ifNoneMatch, String acceptEncoding)
+            throws Exception {
+        final Map<String, String> requestHeaders = new HashMap<>();
+        requestHeaders.put("If-None-Match", ifNoneMatch);
+        requestHeaders.put("Accept-Encoding", acceptEncoding);
+        final HttpServletRequest request = proxy(HttpServletRequest.class, (method, args) -> {
+            switch (method) {
+                case "getMethod":
+                    return "GET";
+                case "getServletPath":
+                    return path;
+                case "getPathInfo":
+                    return null;
+                case "getHeader":
+                    return requestHeaders.get((String) args[0]);
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        final MockResponse response = new MockResponse();
+        filter.doFilter(request, response.proxy, (req, resp) -> response.passed = true);
+        return response;
+    }
+
+    /** A proxy of the interface */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(StaticAssetFilterTest.class.getClassLoader(),
+                new Class<?>[]{type},
+                (object, method, args) -> handler.invoke(method.getName(), args));
+    }
+
+    /** A handler of a proxy method */
+    private interface Handler {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    /** A response writing to a byte array */
+    private static final class MockResponse {
+        final Map<String, String> headers = new HashMap<>();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int status = 200;
+        boolean passed;
+        final HttpServletResponse proxy = proxy(HttpServletResponse.class, (method, args) -> {
+            switch (method) {
+                case "setHeader":
+                case "addHeader":
+                    headers.put((String) args[0], (String) args[1]);
+                    return null;
+                case "setStatus":
+                    status = (Integer) args[0];
+                    return null;
+                case "setContentType":
+                    headers.put("Content-Type", (String) args[0]);
+                    return null;
+                case "setContentLengthLong":
+                    headers.put("Content-Length", String.valueOf(args[0]));
+                    return null;
+                case "getOutputStream":
+                    return new ServletOutputStream() {
+                        @Override
+                        public void write(int b) {
+                            body.write(b);
+                        }
+
+                        @Override
+                        public boolean isReady() {
+                            return true;
+                        }
+
+                        @Override
+                        public void setWriteListener(WriteListener listener) {
+                        }
+                    };
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+    }
+}